@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.benchmarks;
+
+import io.boschman.fxstager.misc.Recyclable;
+import io.boschman.fxstager.screens.AbstractController;
+
+/**
+ * The controller of every FXML document generated for the benchmarks.
+ *
+ * @author Arjan Boschman
+ */
+public class BenchmarkController extends AbstractController implements Recyclable {
+
+    private Object item;
+
+    /**
+     * Binds this controller to a list item.
+     *
+     * @param item The item.
+     */
+    public void bind(Object item) {
+        this.item = item;
+    }
+
+    /**
+     * @return The item this controller is bound to, or null.
+     */
+    public Object getItem() {
+        return item;
+    }
+
+    @Override
+    public void recycle() {
+        this.item = null;
+    }
+
+}
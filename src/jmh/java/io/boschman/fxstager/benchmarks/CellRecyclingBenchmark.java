@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.benchmarks;
+
+import io.boschman.fxstager.misc.FxmlCellFactory;
+import io.boschman.fxstager.testing.FxToolkit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javafx.collections.FXCollections;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.VBox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Simulates scrolling a ListView that uses an {@link FxmlCellFactory}. Every
+ * invocation scrolls one row, rebinding every visible cell to the next item.
+ * The reported time is per updateItem.
+ *
+ * @author Arjan Boschman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CellRecyclingBenchmark {
+
+    private static final int ITEM_COUNT = 50_000;
+    private static final int VISIBLE_CELLS = 30;
+
+    @Param({"false", "true"})
+    private boolean recycling;
+
+    private FxmlDocuments documents;
+    private final List<ListCell<Integer>> cells = new ArrayList<>();
+    private int firstVisibleRow = 0;
+
+    @Setup
+    public void setUp() throws Exception {
+        FxToolkit.start();
+        documents = new FxmlDocuments();
+        final String pathname = documents.write("Cell.fxml", 10).toString();
+        final FxmlCellFactory<Integer, VBox, BenchmarkController> cellFactory = new FxmlCellFactory<>(pathname, null,
+                (Integer item, BenchmarkController controller) -> controller.bind(item), recycling);
+        FxToolkit.runOnFxThread(() -> {
+            final ListView<Integer> listView = new ListView<>(FXCollections.observableArrayList(
+                    IntStream.range(0, ITEM_COUNT).boxed().collect(Collectors.toList())));
+            for (int i = 0; i < VISIBLE_CELLS; i++) {
+                final ListCell<Integer> cell = cellFactory.call(listView);
+                cell.updateListView(listView);
+                cells.add(cell);
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        documents.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VISIBLE_CELLS)
+    public void scrollOneRow() throws Exception {
+        firstVisibleRow = (firstVisibleRow + 1) % (ITEM_COUNT - VISIBLE_CELLS);
+        FxToolkit.runOnFxThread(() -> {
+            for (int i = 0; i < VISIBLE_CELLS; i++) {
+                cells.get(i).updateIndex(firstVisibleRow + i);
+            }
+        });
+    }
+
+}
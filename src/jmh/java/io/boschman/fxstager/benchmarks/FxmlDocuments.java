@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Generates FXML documents of a given size in a temporary directory.
+ *
+ * @author Arjan Boschman
+ */
+final class FxmlDocuments {
+
+    private final Path directory;
+
+    /**
+     * @throws IOException If the temporary directory could not be created.
+     */
+    FxmlDocuments() throws IOException {
+        this.directory = Files.createTempDirectory("fxstager-benchmarks");
+    }
+
+    /**
+     * Writes a document whose root VBox holds the given number of controls,
+     * and whose controller is a {@link BenchmarkController}.
+     *
+     * @param name     The file name of the document.
+     * @param elements The number of controls in the document.
+     * @return The path to the document.
+     * @throws IOException If the document could not be written.
+     */
+    Path write(String name, int elements) throws IOException {
+        final StringBuilder fxml = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<?import javafx.scene.control.*?>\n")
+                .append("<?import javafx.scene.layout.*?>\n")
+                .append("<VBox xmlns:fx=\"http://javafx.com/fxml/1\" fx:controller=\"")
+                .append(BenchmarkController.class.getName())
+                .append("\" spacing=\"4\">\n");
+        for (int i = 0; i < elements; i++) {
+            switch (i % 3) {
+                case 0:
+                    fxml.append("    <Label text=\"Label ").append(i).append("\" wrapText=\"true\"/>\n");
+                    break;
+                case 1:
+                    fxml.append("    <Button text=\"Button ").append(i).append("\" prefWidth=\"120\"/>\n");
+                    break;
+                default:
+                    fxml.append("    <HBox spacing=\"2\"><TextField promptText=\"Field ").append(i).append("\"/></HBox>\n");
+                    break;
+            }
+        }
+        fxml.append("</VBox>\n");
+        return Files.write(directory.resolve(name), fxml.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Deletes the temporary directory and every document in it.
+     *
+     * @throws IOException If a file could not be deleted.
+     */
+    void delete() throws IOException {
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+}
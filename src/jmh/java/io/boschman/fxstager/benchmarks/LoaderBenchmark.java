@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.benchmarks;
+
+import io.boschman.fxstager.loading.LoadedNode;
+import io.boschman.fxstager.loading.Loader;
+import io.boschman.fxstager.testing.FxToolkit;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import javafx.scene.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Loader#load(URL)} on small, medium and large documents, with
+ * and without the template cache.
+ *
+ * @author Arjan Boschman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoaderBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int elements;
+
+    @Param({"0", "64"})
+    private int templateCacheSize;
+
+    private FxmlDocuments documents;
+    private URL url;
+
+    @Setup
+    public void setUp() throws Exception {
+        FxToolkit.start();
+        Loader.setTemplateCacheSize(templateCacheSize);
+        documents = new FxmlDocuments();
+        url = documents.write("Document.fxml", elements).toUri().toURL();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Loader.invalidateTemplates();
+        documents.delete();
+    }
+
+    @Benchmark
+    public LoadedNode<Node, BenchmarkController> load() {
+        return Loader.load(url);
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.benchmarks;
+
+import io.boschman.fxstager.metrics.StagerMetrics;
+import io.boschman.fxstager.screens.NodeSwapper;
+import io.boschman.fxstager.screens.ScreenTransition;
+import io.boschman.fxstager.screens.StagerBuilder;
+import io.boschman.fxstager.testing.FxToolkit;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javafx.util.Duration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of complete screen switches through
+ * {@link NodeSwapper#setScreen(String)}, cycling through a set of preloaded
+ * screens, with a fading or an instant transition. Every operation waits
+ * until its switch has finished, so switches are never redirected mid
+ * transition. The fade is kept short, so that the cost of animating the
+ * Stager is measured rather than the length of the animation.
+ *
+ * @author Arjan Boschman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NodeSwapperBenchmark {
+
+    private static final int SCREENS = 8;
+    private static final Duration FADE_DURATION = Duration.millis(20);
+
+    @Param({"fade", "instant"})
+    private String transition;
+
+    private FxmlDocuments documents;
+    private NodeSwapper nodeSwapper;
+    private int nextScreen = 0;
+    private volatile CountDownLatch switched = new CountDownLatch(0);
+
+    @Setup
+    public void setUp() throws Exception {
+        FxToolkit.start();
+        documents = new FxmlDocuments();
+        final StagerBuilder stagerBuilder = new StagerBuilder()
+                .setTransition("instant".equals(transition)
+                        ? ScreenTransition::instant
+                        : () -> ScreenTransition.fade(FADE_DURATION, FADE_DURATION));
+        for (int i = 0; i < SCREENS; i++) {
+            stagerBuilder.addScreen("screen" + i, documents.write("Screen" + i + ".fxml", 100).toString());
+        }
+        nodeSwapper = (NodeSwapper) FxToolkit.callOnFxThread(stagerBuilder::create);
+        FxToolkit.runOnFxThread(() -> nodeSwapper.setMetrics(new StagerMetrics() {
+            @Override
+            public void recordScreenSwitch(String screenId, long nanos) {
+                switched.countDown();
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        documents.delete();
+    }
+
+    @Benchmark
+    public boolean setScreen() throws Exception {
+        nextScreen = (nextScreen + 1) % SCREENS;
+        final String key = "screen" + nextScreen;
+        switched = new CountDownLatch(1);
+        final boolean set = FxToolkit.callOnFxThread(() -> nodeSwapper.setScreen(key));
+        if (!switched.await(5, TimeUnit.SECONDS)) {
+            throw new TimeoutException("Switching to " + key + " did not finish.");
+        }
+        return set;
+    }
+
+}
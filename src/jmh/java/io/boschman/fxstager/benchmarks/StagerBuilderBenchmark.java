@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.benchmarks;
+
+import io.boschman.fxstager.screens.Stager;
+import io.boschman.fxstager.screens.StagerBuilder;
+import io.boschman.fxstager.testing.FxToolkit;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link StagerBuilder#create()} with a number of medium sized
+ * screens, loaded eagerly or lazily.
+ *
+ * @author Arjan Boschman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StagerBuilderBenchmark {
+
+    @Param({"10", "80"})
+    private int screens;
+
+    @Param({"false", "true"})
+    private boolean lazy;
+
+    private FxmlDocuments documents;
+    private StagerBuilder stagerBuilder;
+
+    @Setup
+    public void setUp() throws Exception {
+        FxToolkit.start();
+        documents = new FxmlDocuments();
+        stagerBuilder = new StagerBuilder().setLazy(lazy);
+        for (int i = 0; i < screens; i++) {
+            stagerBuilder.addScreen("screen" + i, documents.write("Screen" + i + ".fxml", 100).toString());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        documents.delete();
+    }
+
+    @Benchmark
+    public Stager create() throws Exception {
+        return FxToolkit.callOnFxThread(stagerBuilder::create);
+    }
+
+}
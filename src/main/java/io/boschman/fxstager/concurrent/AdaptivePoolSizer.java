@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Periodically grows or shrinks a thread pool by one thread. The pool grows
+ * when tasks waited longer than the target on average since the last check,
+ * unless the CPU is already saturated, in which case more threads would only
+ * compete for it. The pool shrinks when tasks hardly waited and there are
+ * idle threads.
+ *
+ * @author Arjan Boschman
+ */
+final class AdaptivePoolSizer implements Runnable {
+
+    private static final OperatingSystemMXBean OPERATING_SYSTEM = ManagementFactory.getOperatingSystemMXBean();
+
+    private final ThreadPoolExecutor executor;
+    private final TaskStatistics statistics;
+    private final int minimumThreads;
+    private final int maximumThreads;
+    private final long targetWaitNanos;
+    //Only accessed from the monitor thread.
+    private long lastStarted;
+    private long lastWaitNanos;
+
+    AdaptivePoolSizer(ThreadPoolExecutor executor, TaskStatistics statistics, int minimumThreads, int maximumThreads, long targetWaitNanos) {
+        if (minimumThreads < 1 || maximumThreads < minimumThreads) {
+            throw new IllegalArgumentException("Invalid thread limits: " + minimumThreads + " to " + maximumThreads);
+        }
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw new IllegalStateException("Adaptive sizing needs a thread pool with a work queue.");
+        }
+        this.executor = executor;
+        this.statistics = statistics;
+        this.minimumThreads = minimumThreads;
+        this.maximumThreads = maximumThreads;
+        this.targetWaitNanos = targetWaitNanos;
+        this.lastStarted = statistics.getStartedCount();
+        this.lastWaitNanos = statistics.getTotalWaitNanos();
+        resize(Math.max(minimumThreads, Math.min(maximumThreads, executor.getCorePoolSize())));
+    }
+
+    @Override
+    public void run() {
+        final long started = statistics.getStartedCount();
+        final long waitNanos = statistics.getTotalWaitNanos();
+        final long count = started - lastStarted;
+        final long averageWaitNanos = count == 0 ? 0 : (waitNanos - lastWaitNanos) / count;
+        lastStarted = started;
+        lastWaitNanos = waitNanos;
+        final int size = executor.getCorePoolSize();
+        final boolean backlogged = averageWaitNanos > targetWaitNanos || count == 0 && !executor.getQueue().isEmpty();
+        if (backlogged && size < maximumThreads && !isCpuSaturated()) {
+            resize(size + 1);
+        } else if (averageWaitNanos < targetWaitNanos / 4 && executor.getQueue().isEmpty()
+                && executor.getActiveCount() < size && size > minimumThreads) {
+            resize(size - 1);
+        }
+    }
+
+    private void resize(int size) {
+        //The order matters, since the core size may never exceed the maximum.
+        if (size > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(size);
+            executor.setCorePoolSize(size);
+        } else {
+            executor.setCorePoolSize(size);
+            executor.setMaximumPoolSize(size);
+        }
+    }
+
+    private static boolean isCpuSaturated() {
+        final double loadAverage = OPERATING_SYSTEM.getSystemLoadAverage();
+        //A negative load average means it isn't available on this platform.
+        return loadAverage >= OPERATING_SYSTEM.getAvailableProcessors();
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * A PriorityBlockingQueue with a capacity, meant to be used as the work queue
+ * of a ThreadPoolExecutor. Offers fail when the queue is full, which makes the
+ * ThreadPoolExecutor apply its rejection policy.
+ *
+ * @author Arjan Boschman
+ */
+final class BoundedPriorityQueue extends PriorityBlockingQueue<Runnable> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    BoundedPriorityQueue(int capacity) {
+        super(Math.max(1, Math.min(capacity, 64)), PrioritizedRunnable.ORDER);
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized boolean offer(Runnable runnable) {
+        if (size() >= capacity) {
+            return false;
+        }
+        return super.offer(runnable);
+    }
+
+    @Override
+    public synchronized int remainingCapacity() {
+        return capacity - size();
+    }
+
+    /**
+     * Removes the queued runnable that would run last, if it would run after
+     * the candidate. Only runnables that can be cancelled are considered.
+     *
+     * @param candidate A runnable that is not in the queue.
+     * @return The removed runnable, the candidate itself if nothing in the
+     *         queue would run after it, or null if a worker took the runnable
+     *         that would run last before it could be removed.
+     */
+    synchronized PrioritizedRunnable pollLowest(PrioritizedRunnable candidate) {
+        Runnable lowest = candidate;
+        for (Runnable queued : this) {
+            if (PrioritizedRunnable.ORDER.compare(queued, lowest) > 0
+                    && PrioritizedRunnable.wrap(queued).isCancellable()
+                    && PrioritizedRunnable.wrap(queued).getPriority().compareTo(candidate.getPriority()) > 0) {
+                lowest = queued;
+            }
+        }
+        if (lowest != candidate && !remove(lowest)) {
+            //Already running, so it must not be cancelled. Its slot is free now.
+            return null;
+        }
+        return PrioritizedRunnable.wrap(lowest);
+    }
+
+}
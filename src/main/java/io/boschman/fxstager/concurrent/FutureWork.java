@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Runs a Supplier and completes a CompletableFuture with its result.
+ * Cancelling the future before the work has started means the work never
+ * starts; cancelling it while the work is running interrupts the thread
+ * running it.
+ *
+ * @author Arjan Boschman
+ * @param <T> The type of the result.
+ */
+final class FutureWork<T> implements Runnable {
+
+    private final Supplier<T> work;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+    private Thread runner;
+
+    FutureWork(Supplier<T> work) {
+        this.work = work;
+        future.whenComplete((T result, Throwable throwable) -> {
+            if (future.isCancelled()) {
+                interruptRunner();
+            }
+        });
+    }
+
+    CompletableFuture<T> getFuture() {
+        return future;
+    }
+
+    /**
+     * @return True if the work threw an exception.
+     */
+    boolean hasFailed() {
+        return future.isCompletedExceptionally() && !future.isCancelled();
+    }
+
+    @Override
+    public void run() {
+        if (!start()) {
+            return;
+        }
+        try {
+            future.complete(work.get());
+        } catch (Throwable throwable) {
+            future.completeExceptionally(throwable);
+        } finally {
+            finish();
+        }
+    }
+
+    private synchronized boolean start() {
+        if (future.isDone()) {
+            return false;
+        }
+        runner = Thread.currentThread();
+        return true;
+    }
+
+    private void finish() {
+        synchronized (this) {
+            runner = null;
+        }
+        //Clears an interrupt that arrived after the work itself had finished.
+        Thread.interrupted();
+    }
+
+    private synchronized void interruptRunner() {
+        if (runner != null) {
+            runner.interrupt();
+        }
+    }
+
+}
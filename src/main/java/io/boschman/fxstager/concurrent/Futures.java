@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * A static utility class for combining CompletableFutures, such as the ones
+ * created by {@link TaskLauncher#supplyAsync(java.util.function.Supplier)}.
+ *
+ * @author Arjan Boschman
+ */
+public final class Futures {
+
+    /**
+     * Combines futures into one future of all their results. If any of the
+     * futures fails, the combined future fails too, and the remaining futures
+     * are cancelled. If the combined future is cancelled, all futures are
+     * cancelled.
+     *
+     * @param <T>     The type of the results.
+     * @param futures The futures to combine.
+     * @return A future that completes with the results, in the same order as
+     *         the futures.
+     */
+    public static <T> CompletableFuture<List<T>> allOf(List<? extends CompletableFuture<? extends T>> futures) {
+        final List<CompletableFuture<? extends T>> inputs = new ArrayList<>(futures);
+        final CompletableFuture<List<T>> combined = CompletableFuture
+                .allOf(inputs.toArray(new CompletableFuture<?>[inputs.size()]))
+                .thenApply((Void ignored) -> inputs.stream()
+                        .map(CompletableFuture::join)
+                        .collect(Collectors.<T>toList()));
+        for (CompletableFuture<? extends T> input : inputs) {
+            input.whenComplete((T result, Throwable throwable) -> {
+                if (throwable != null) {
+                    combined.completeExceptionally(throwable);
+                }
+            });
+        }
+        combined.whenComplete((List<T> results, Throwable throwable) -> {
+            if (throwable != null) {
+                inputs.forEach((CompletableFuture<? extends T> input) -> input.cancel(true));
+            }
+        });
+        return combined;
+    }
+
+    private Futures() {
+        //Private constructor to make sure no instance is created.
+    }
+
+}
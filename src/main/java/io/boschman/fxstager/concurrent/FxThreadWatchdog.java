@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Platform;
+
+/**
+ * Detects stalls of the JavaFX Application thread. Periodically posts a
+ * heartbeat through Platform.runLater. If a heartbeat hasn't run after the
+ * threshold has passed since it was posted, the stack of the JavaFX
+ * Application thread is sampled and reported to a listener. The thread is
+ * only known once a heartbeat has run on it, so a stall that starts before
+ * the first heartbeat is reported without a stack trace. At most one report is
+ * made per stall, and reports are rate limited.
+ * <p>
+ * The watchdog uses a single daemon thread that wakes up a few times per
+ * threshold and keeps at most one heartbeat in flight, so it is cheap enough
+ * to leave running in production. The JavaFX toolkit must have been started
+ * before the watchdog is.
+ *
+ * @author Arjan Boschman
+ */
+public class FxThreadWatchdog {
+
+    private static final long IDLE = -1;
+    private static final long MINIMUM_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final StackTraceElement[] UNKNOWN_STACK_TRACE = new StackTraceElement[0];
+
+    private final long thresholdNanos;
+    private final long minimumReportIntervalNanos;
+    private final StallListener listener;
+    private final AtomicLong heartbeatPostedAt = new AtomicLong(IDLE);
+    private volatile Thread fxThread;
+    private ScheduledExecutorService scheduler;
+    //Only accessed from the watchdog thread.
+    private long heartbeat = 0;
+    private long reportedHeartbeat = -1;
+    private long lastReportAt = 0;
+    private boolean hasReported = false;
+
+    /**
+     * Creates a new, stopped watchdog.
+     *
+     * @param threshold             How long the JavaFX Application thread may
+     *                              be unresponsive before it counts as a
+     *                              stall.
+     * @param minimumReportInterval The minimum time between two reports.
+     * @param unit                  The unit of both durations.
+     * @param listener              Is notified of every reported stall.
+     */
+    public FxThreadWatchdog(long threshold, long minimumReportInterval, TimeUnit unit, StallListener listener) {
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.minimumReportIntervalNanos = unit.toNanos(minimumReportInterval);
+        this.listener = listener;
+    }
+
+    /**
+     * Starts watching the JavaFX Application thread. Does nothing if the
+     * watchdog is already running.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor((Runnable runnable) -> {
+            final Thread thread = new Thread(runnable, "FxThreadWatchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long tickNanos = Math.max(MINIMUM_TICK_NANOS, thresholdNanos / 4);
+        scheduler.scheduleWithFixedDelay(this::tick, 0, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops watching the JavaFX Application thread. The watchdog can be
+     * started again afterwards.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            heartbeatPostedAt.set(IDLE);
+        }
+    }
+
+    /**
+     * @return True if the watchdog is running.
+     */
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    private void tick() {
+        final long now = System.nanoTime();
+        final long postedAt = heartbeatPostedAt.get();
+        if (postedAt == IDLE) {
+            heartbeat++;
+            heartbeatPostedAt.set(now);
+            Platform.runLater(() -> {
+                fxThread = Thread.currentThread();
+                heartbeatPostedAt.set(IDLE);
+            });
+            return;
+        }
+        final long stalledNanos = now - postedAt;
+        if (stalledNanos < thresholdNanos || reportedHeartbeat == heartbeat) {
+            return;
+        }
+        if (hasReported && now - lastReportAt < minimumReportIntervalNanos) {
+            return;
+        }
+        reportedHeartbeat = heartbeat;
+        lastReportAt = now;
+        hasReported = true;
+        final Thread stalledThread = fxThread;
+        try {
+            listener.onStall(TimeUnit.NANOSECONDS.toMillis(stalledNanos),
+                    stalledThread == null ? UNKNOWN_STACK_TRACE : stalledThread.getStackTrace());
+        } catch (RuntimeException ex) {
+            //Must not escape, or the scheduler would stop running this task.
+            Logger.getLogger(FxThreadWatchdog.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javafx.animation.PauseTransition;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.util.Duration;
+
+/**
+ * Keeps track of the latest Task launched per key, on behalf of a
+ * TaskLauncher. Every submission for a key makes all earlier submissions for
+ * that key stale: their Tasks are cancelled, and should they finish anyway,
+ * their results are ignored. Submissions can optionally be debounced or
+ * throttled. Only to be used from the JavaFX Application thread.
+ *
+ * @author Arjan Boschman
+ */
+final class LatestTasks {
+
+    private final TaskLauncher taskLauncher;
+    private final Map<Object, Slot> slots = new HashMap<>();
+
+    LatestTasks(TaskLauncher taskLauncher) {
+        this.taskLauncher = taskLauncher;
+    }
+
+    /**
+     * Launches the work right away.
+     */
+    <T> void launch(Object key, Supplier<T> work, Consumer<T> onSucceeded) {
+        final Slot slot = supersede(key);
+        launch(key, slot, slot.generation, work, onSucceeded);
+    }
+
+    /**
+     * Launches the work once no other work has been submitted for the key
+     * during the quiet period.
+     */
+    <T> void debounce(Object key, Duration quietPeriod, Supplier<T> work, Consumer<T> onSucceeded) {
+        final Slot slot = supersede(key);
+        final long generation = slot.generation;
+        slot.pendingLaunch = () -> launch(key, slot, generation, work, onSucceeded);
+        slot.timer.stop();
+        slot.timer.setDuration(quietPeriod);
+        slot.timer.setOnFinished((ActionEvent event) -> launchPending(key, slot));
+        slot.timer.playFromStart();
+    }
+
+    /**
+     * Launches the work right away if nothing has been launched for the key
+     * during the last interval. Otherwise it is launched at the end of the
+     * interval, unless newer work is submitted before then.
+     */
+    <T> void throttle(Object key, Duration interval, Supplier<T> work, Consumer<T> onSucceeded) {
+        final Slot slot = supersede(key);
+        final long generation = slot.generation;
+        slot.pendingLaunch = () -> launch(key, slot, generation, work, onSucceeded);
+        if (slot.timer.getStatus() != PauseTransition.Status.RUNNING) {
+            slot.timer.setDuration(interval);
+            slot.timer.setOnFinished((ActionEvent event) -> {
+                if (slot.pendingLaunch != null) {
+                    launchPending(key, slot);
+                    slot.timer.playFromStart();
+                } else {
+                    removeIfIdle(key, slot);
+                }
+            });
+            launchPending(key, slot);
+            slot.timer.playFromStart();
+        }
+    }
+
+    /**
+     * Cancels whatever is running or pending for the key.
+     */
+    void cancel(Object key) {
+        final Slot slot = slots.remove(key);
+        if (slot != null) {
+            slot.generation++;
+            slot.pendingLaunch = null;
+            slot.timer.stop();
+            if (slot.running != null) {
+                slot.running.cancel();
+            }
+        }
+    }
+
+    private Slot supersede(Object key) {
+        final Slot slot = slots.computeIfAbsent(key, (Object k) -> new Slot());
+        slot.generation++;
+        final Task<?> superseded = slot.running;
+        //Cleared first, since cancelling on this thread fires its events right away.
+        slot.running = null;
+        if (superseded != null) {
+            superseded.cancel();
+        }
+        return slot;
+    }
+
+    private void launchPending(Object key, Slot slot) {
+        final Runnable pendingLaunch = slot.pendingLaunch;
+        slot.pendingLaunch = null;
+        if (pendingLaunch != null) {
+            pendingLaunch.run();
+        }
+    }
+
+    private <T> void launch(Object key, Slot slot, long generation, Supplier<T> work, Consumer<T> onSucceeded) {
+        final Task<T> task = taskLauncher.makeTask(work, (T result) -> {
+            if (slot.generation == generation) {
+                onSucceeded.accept(result);
+            }
+        });
+        final EventHandler<WorkerStateEvent> onDone = (WorkerStateEvent event) -> {
+            if (slot.running == task) {
+                slot.running = null;
+                removeIfIdle(key, slot);
+            }
+        };
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, onDone);
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, onDone);
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, onDone);
+        slot.running = task;
+        taskLauncher.launchTask(task);
+    }
+
+    private void removeIfIdle(Object key, Slot slot) {
+        if (slot.running == null && slot.pendingLaunch == null
+                && slot.timer.getStatus() != PauseTransition.Status.RUNNING) {
+            slots.remove(key, slot);
+        }
+    }
+
+    /**
+     * The state kept for a single key.
+     */
+    private static final class Slot {
+
+        private final PauseTransition timer = new PauseTransition();
+        private long generation = 0;
+        private Task<?> running;
+        private Runnable pendingLaunch;
+
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+/**
+ * A Task that transforms a list of items in parallel on a fork/join pool, and
+ * streams the results to the JavaFX Application thread while it runs, instead
+ * of delivering them all at the end. The items are split into chunks; the
+ * results of finished chunks are passed to a consumer in the order of the
+ * input, at most once per pulse, combined into a single batch. That makes it
+ * cheap to append them to an ObservableList as they arrive. The Task only
+ * succeeds once the last batch has been passed to the consumer.
+ * <p>
+ * Progress is reported through the progress properties of the Task, in
+ * items. Cancelling the Task stops the remaining chunks from being processed,
+ * and no further results are delivered.
+ *
+ * @author Arjan Boschman
+ * @param <T> The type of the input items.
+ * @param <R> The type of the results.
+ */
+public class ParallelChunkTask<T, R> extends Task<Void> {
+
+    private final List<T> items;
+    private final int chunkSize;
+    private final Function<? super T, ? extends R> transform;
+    private final Consumer<List<R>> onChunks;
+    private final ForkJoinPool pool;
+    private final AtomicReferenceArray<List<R>> chunks;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean();
+    private final CountDownLatch allDelivered = new CountDownLatch(1);
+    private final AnimationTimer deliveryTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            deliver();
+        }
+    };
+    //Only accessed from the JavaFX Application thread.
+    private int nextChunk = 0;
+
+    /**
+     * Creates a task that runs on the common fork/join pool.
+     *
+     * @param items     The input items.
+     * @param chunkSize The number of items in a chunk.
+     * @param transform Transforms a single item. Is called on the threads of
+     *                  the fork/join pool, so it must be thread safe.
+     * @param onChunks  Is given the results of one or more finished chunks,
+     *                  on the JavaFX Application thread.
+     */
+    public ParallelChunkTask(List<T> items, int chunkSize, Function<? super T, ? extends R> transform, Consumer<List<R>> onChunks) {
+        this(items, chunkSize, transform, onChunks, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a task that runs on the given fork/join pool.
+     *
+     * @param items     The input items.
+     * @param chunkSize The number of items in a chunk.
+     * @param transform Transforms a single item. Is called on the threads of
+     *                  the fork/join pool, so it must be thread safe.
+     * @param onChunks  Is given the results of one or more finished chunks,
+     *                  on the JavaFX Application thread.
+     * @param pool      The fork/join pool that transforms the items.
+     */
+    public ParallelChunkTask(List<T> items, int chunkSize, Function<? super T, ? extends R> transform, Consumer<List<R>> onChunks, ForkJoinPool pool) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.items = items;
+        this.chunkSize = chunkSize;
+        this.transform = transform;
+        this.onChunks = onChunks;
+        this.pool = pool;
+        this.chunks = new AtomicReferenceArray<>((items.size() + chunkSize - 1) / chunkSize);
+    }
+
+    @Override
+    protected Void call() throws InterruptedException {
+        updateProgress(0, items.size());
+        pool.invoke(new ChunkAction(0, chunks.length()));
+        if (chunks.length() > 0 && !isCancelled()) {
+            allDelivered.await();
+        }
+        return null;
+    }
+
+    private void process(int chunk) {
+        final int from = chunk * chunkSize;
+        final int to = Math.min(from + chunkSize, items.size());
+        final List<R> results = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            if (isCancelled()) {
+                return;
+            }
+            results.add(transform.apply(items.get(i)));
+        }
+        chunks.set(chunk, results);
+        updateProgress(processed.addAndGet(to - from), items.size());
+        if (deliveryScheduled.compareAndSet(false, true)) {
+            //Started from an event, the timer first fires on the next pulse.
+            Platform.runLater(deliveryTimer::start);
+        }
+    }
+
+    /**
+     * Passes all finished chunks that are next in line to the consumer, as a
+     * single batch. Called on a pulse.
+     */
+    private void deliver() {
+        deliveryScheduled.set(false);
+        final List<R> batch = new ArrayList<>();
+        while (nextChunk < chunks.length() && chunks.get(nextChunk) != null) {
+            batch.addAll(chunks.getAndSet(nextChunk, null));
+            nextChunk++;
+        }
+        if (nextChunk == chunks.length()) {
+            //The Task succeeds through an event, which runs after this batch.
+            allDelivered.countDown();
+        }
+        if (!batch.isEmpty() && !isCancelled()) {
+            onChunks.accept(batch);
+        }
+    }
+
+    /**
+     * Splits a range of chunks in half until a single chunk remains.
+     */
+    private final class ChunkAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int firstChunk;
+        private final int endChunk;
+
+        ChunkAction(int firstChunk, int endChunk) {
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (ParallelChunkTask.this.isCancelled()) {
+                return;
+            }
+            if (endChunk - firstChunk <= 1) {
+                if (firstChunk < endChunk) {
+                    process(firstChunk);
+                }
+                return;
+            }
+            final int middle = (firstChunk + endChunk) >>> 1;
+            invokeAll(new ChunkAction(firstChunk, middle), new ChunkAction(middle, endChunk));
+        }
+
+    }
+
+}
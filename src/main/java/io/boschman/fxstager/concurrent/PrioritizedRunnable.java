@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps a Runnable together with its priority and the order in which it was
+ * submitted, so that a priority queue can order it. Optionally records its
+ * statistics when it is run.
+ *
+ * @author Arjan Boschman
+ */
+final class PrioritizedRunnable implements Runnable {
+
+    /**
+     * Orders by priority first, and by order of submission second.
+     */
+    static final Comparator<Runnable> ORDER = Comparator
+            .comparing((Runnable runnable) -> wrap(runnable).priority)
+            .thenComparingLong((Runnable runnable) -> wrap(runnable).sequence);
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final Runnable delegate;
+    private final TaskPriority priority;
+    private final long sequence;
+    private final TaskStatistics statistics;
+    private final long submittedAt;
+
+    PrioritizedRunnable(Runnable delegate, TaskPriority priority) {
+        this(delegate, priority, null);
+    }
+
+    PrioritizedRunnable(Runnable delegate, TaskPriority priority, TaskStatistics statistics) {
+        this.delegate = delegate;
+        this.priority = priority;
+        this.sequence = SEQUENCE.getAndIncrement();
+        this.statistics = statistics;
+        this.submittedAt = System.nanoTime();
+        if (statistics != null) {
+            statistics.recordSubmitted();
+        }
+    }
+
+    /**
+     * @param runnable Any runnable.
+     * @return The runnable itself if it is a PrioritizedRunnable, otherwise
+     *         the runnable wrapped at normal priority.
+     */
+    static PrioritizedRunnable wrap(Runnable runnable) {
+        return runnable instanceof PrioritizedRunnable
+                ? (PrioritizedRunnable) runnable
+                : new PrioritizedRunnable(runnable, TaskPriority.NORMAL);
+    }
+
+    Runnable getDelegate() {
+        return delegate;
+    }
+
+    TaskPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return True if the wrapped work can be cancelled, so that whoever waits
+     *         for it learns that it will never run. That holds for Futures,
+     *         such as Tasks, and for the work behind TaskLauncher.supplyAsync,
+     *         but not for the internal tasks of CompletableFuture: cancelling
+     *         those leaves their CompletableFuture incomplete.
+     */
+    boolean isCancellable() {
+        return delegate instanceof FutureWork
+                || delegate instanceof Future && !(delegate instanceof CompletableFuture.AsynchronousCompletionTask);
+    }
+
+    /**
+     * Cancels the wrapped work, if it is cancellable, without interrupting it.
+     */
+    void cancel() {
+        if (delegate instanceof FutureWork) {
+            ((FutureWork<?>) delegate).getFuture().cancel(false);
+        } else if (isCancellable()) {
+            ((Future<?>) delegate).cancel(false);
+        }
+    }
+
+    @Override
+    public void run() {
+        if (statistics == null) {
+            delegate.run();
+        } else {
+            statistics.run(delegate, submittedAt);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Decides what a bounded TaskLauncher does with work that arrives while its
+ * queue is full. Work is only ever dropped if it can be cancelled, so that its
+ * state reflects that it will never run: Futures such as Tasks, and the work
+ * behind {@link TaskLauncher#supplyAsync(java.util.function.Supplier)}. Other
+ * work, such as plain Runnables and the stages of CompletableFutures run
+ * through {@link TaskLauncher#getBackgroundExecutor()}, is rejected with a
+ * RejectedExecutionException instead of being dropped silently.
+ *
+ * @author Arjan Boschman
+ */
+public enum RejectionPolicy {
+
+    /**
+     * Throws a RejectedExecutionException to whoever submitted the work.
+     */
+    ABORT {
+        @Override
+        void reject(PrioritizedRunnable rejected, ThreadPoolExecutor executor) {
+            throw new RejectedExecutionException("The TaskLauncher's queue is full.");
+        }
+    },
+    /**
+     * Drops the newly submitted work.
+     */
+    DISCARD {
+        @Override
+        void reject(PrioritizedRunnable rejected, ThreadPoolExecutor executor) {
+            drop(rejected);
+        }
+    },
+    /**
+     * Drops the queued work with the lowest priority, to make room for the
+     * newly submitted work. If the newly submitted work has the lowest
+     * priority itself, it is dropped instead.
+     */
+    DISCARD_LOWEST_PRIORITY {
+        @Override
+        void reject(PrioritizedRunnable rejected, ThreadPoolExecutor executor) {
+            final PrioritizedRunnable lowest = ((BoundedPriorityQueue) executor.getQueue()).pollLowest(rejected);
+            if (lowest == rejected) {
+                drop(rejected);
+            } else {
+                //Null means nothing was dropped, but the queue has room anyway.
+                if (lowest != null) {
+                    lowest.cancel();
+                }
+                executor.execute(rejected);
+            }
+        }
+    },
+    /**
+     * Runs the newly submitted work on the thread that submitted it. Slows
+     * down the submitter, but note that this is usually the JavaFX
+     * Application thread.
+     */
+    CALLER_RUNS {
+        @Override
+        void reject(PrioritizedRunnable rejected, ThreadPoolExecutor executor) {
+            rejected.run();
+        }
+    };
+
+    abstract void reject(PrioritizedRunnable rejected, ThreadPoolExecutor executor);
+
+    RejectedExecutionHandler toHandler() {
+        return (Runnable runnable, ThreadPoolExecutor executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("The TaskLauncher has been shut down.");
+            }
+            reject(PrioritizedRunnable.wrap(runnable), executor);
+        };
+    }
+
+    private static void drop(PrioritizedRunnable dropped) {
+        if (!dropped.isCancellable()) {
+            throw new RejectedExecutionException("The TaskLauncher's queue is full.");
+        }
+        dropped.cancel();
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+/**
+ * Is notified by an {@link FxThreadWatchdog} when the JavaFX Application
+ * thread has been unresponsive for longer than the watchdog's threshold.
+ *
+ * @author Arjan Boschman
+ */
+@FunctionalInterface
+public interface StallListener {
+
+    /**
+     * Will be called on the watchdog's own thread, while the JavaFX
+     * Application thread is still stalled.
+     *
+     * @param stalledMillis How long the JavaFX Application thread has been
+     *                      unresponsive so far, in milliseconds.
+     * @param stackTrace    The stack of the JavaFX Application thread,
+     *                      sampled at the time of the report. Empty if the
+     *                      thread stalled before the watchdog's first
+     *                      heartbeat ran, since the thread isn't known yet.
+     */
+    void onStall(long stalledMillis, StackTraceElement[] stackTrace);
+
+}
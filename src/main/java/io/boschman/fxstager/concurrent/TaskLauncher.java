@@ -17,39 +17,74 @@
  */
 package io.boschman.fxstager.concurrent;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.concurrent.WorkerStateEvent;
+import javafx.util.Duration;
 
 /**
  * Aides in constructing and executing tasks using a thread pool.
+ * <p>
+ * Work can be submitted with a {@link TaskPriority}. Priorities only take
+ * effect with a prioritized thread pool, such as the one created by
+ * {@link #bounded(int, int, RejectionPolicy)}; other thread pools execute work
+ * in their own order.
+ * <p>
+ * The launcher keeps metrics of the work it runs, available through
+ * {@link #getMetrics()}, and can optionally resize its thread pool based on
+ * them, see {@link #enableAdaptiveSizing(int, int, long, TimeUnit)}.
  *
  * @author Arjan Boschman
  */
 public class TaskLauncher {
 
-    //TODO: low prio: name threads.
+    /**
+     * The system property that makes the default constructor use virtual
+     * threads.
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = "fxstager.taskLauncher.virtualThreads";
+
+    private static final String VIRTUAL_THREAD_POOL = "io.boschman.fxstager.concurrent.VirtualThreadPool";
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger(1);
+
+    private static final long ADAPTIVE_SIZING_INTERVAL_MILLIS = 500;
+
     private final ExecutorService threadpool;
+    private final LatestTasks latestTasks = new LatestTasks(this);
+    private final TaskStatistics statistics = new TaskStatistics();
+    private ScheduledExecutorService monitor;
+    private ScheduledFuture<?> metricsReporter;
+    private ScheduledFuture<?> adaptiveSizer;
 
     /**
      * Creates a new TaskLauncher using a new cached thread pool. All threads
-     * created are Daemon threads.
+     * created are Daemon threads. If the system property
+     * {@value #VIRTUAL_THREADS_PROPERTY} is set to true, virtual threads are
+     * used instead where available, see {@link #withVirtualThreads()}.
      *
      */
     public TaskLauncher() {
-        this(Executors.newCachedThreadPool((Runnable runnable) -> {
-            final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
-            thread.setDaemon(true);
-            thread.setName("TaskLauncherThread" + thread.getId());//Todo: multiple threadpools.
-            return thread;
-        }));
+        this(Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY)
+                ? newVirtualThreadPool()
+                : Executors.newCachedThreadPool(newThreadFactory()));
     }
 
     /**
@@ -62,16 +97,179 @@ public class TaskLauncher {
         this.threadpool = threadpool;
     }
 
+    /**
+     * Creates a new TaskLauncher using a fixed number of Daemon threads and a
+     * bounded queue, in which work is ordered by priority. When the queue is
+     * full, the given rejection policy decides what happens to newly submitted
+     * work.
+     *
+     * @param threads         The number of threads.
+     * @param queueCapacity   The maximum number of queued tasks.
+     * @param rejectionPolicy What to do when the queue is full.
+     * @return The new TaskLauncher.
+     */
+    public static TaskLauncher bounded(int threads, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        return new TaskLauncher(new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new BoundedPriorityQueue(queueCapacity), newThreadFactory(), rejectionPolicy.toHandler()));
+    }
+
+    /**
+     * Creates a new TaskLauncher that runs every task on its own virtual
+     * thread, so that thousands of tasks can block on I/O at the same time
+     * without tying up as many platform threads. Virtual threads are only
+     * available on Java 21 or newer; on older runtimes a cached thread pool is
+     * used instead. Task priorities are ignored, since nothing is queued.
+     *
+     * @return The new TaskLauncher.
+     */
+    public static TaskLauncher withVirtualThreads() {
+        return new TaskLauncher(newVirtualThreadPool());
+    }
+
+    private static ExecutorService newVirtualThreadPool() {
+        try {
+            return (ExecutorService) Class.forName(VIRTUAL_THREAD_POOL).getMethod("newExecutor").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            Logger.getLogger(TaskLauncher.class.getName()).log(Level.INFO,
+                    "Virtual threads are not available on this runtime, using a cached thread pool.", ex);
+            return Executors.newCachedThreadPool(newThreadFactory());
+        }
+    }
+
+    /**
+     * Creates a factory for the threads of one thread pool. The threads are
+     * Daemon threads, named after the pool they belong to.
+     *
+     * @return The new ThreadFactory.
+     */
+    static ThreadFactory newThreadFactory() {
+        final int poolNumber = POOL_COUNT.getAndIncrement();
+        final AtomicInteger threadCount = new AtomicInteger(1);
+        return (Runnable runnable) -> {
+            final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setDaemon(true);
+            thread.setName("TaskLauncher-" + poolNumber + "-thread-" + threadCount.getAndIncrement());
+            return thread;
+        };
+    }
+
+    /**
+     * Takes a snapshot of the metrics of this launcher. Work submitted to the
+     * thread pool other than through this launcher is not included. This
+     * method may be called from any thread.
+     *
+     * @return The snapshot.
+     */
+    public TaskMetrics getMetrics() {
+        if (threadpool instanceof ThreadPoolExecutor) {
+            final ThreadPoolExecutor executor = (ThreadPoolExecutor) threadpool;
+            return statistics.snapshot(executor.getQueue().size(), executor.getPoolSize());
+        }
+        //Without a pool to ask, count only the threads running work.
+        return statistics.snapshot(0, statistics.getActiveCount());
+    }
+
+    /**
+     * Periodically passes a snapshot of the metrics of this launcher to a
+     * reporter, on a separate daemon thread. Replaces any reporter started
+     * before.
+     *
+     * @param period   The time between two reports.
+     * @param unit     The unit of the period.
+     * @param reporter Is given every snapshot, for instance to log it.
+     */
+    public synchronized void startMetricsReporter(long period, TimeUnit unit, Consumer<TaskMetrics> reporter) {
+        stopMetricsReporter();
+        metricsReporter = getMonitor().scheduleAtFixedRate(() -> {
+            try {
+                reporter.accept(getMetrics());
+            } catch (RuntimeException ex) {
+                //Must not escape, or the monitor would stop running this task.
+                Logger.getLogger(TaskLauncher.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops the reporter started with
+     * {@link #startMetricsReporter(long, TimeUnit, Consumer)}, if any.
+     */
+    public synchronized void stopMetricsReporter() {
+        if (metricsReporter != null) {
+            metricsReporter.cancel(false);
+            metricsReporter = null;
+        }
+    }
+
+    /**
+     * Lets the size of the thread pool follow the load, so that it doesn't
+     * have to be tuned by hand. Every half second, the pool grows by one
+     * thread if tasks waited longer than the target on average, unless the
+     * system load shows that the CPU is already saturated. It shrinks by one
+     * thread if tasks hardly waited and threads are idle. Only thread pools
+     * with a work queue can be resized, such as the one created by
+     * {@link #bounded(int, int, RejectionPolicy)}.
+     *
+     * @param minimumThreads The minimum number of threads.
+     * @param maximumThreads The maximum number of threads.
+     * @param targetWait     The average time tasks may wait to be started.
+     * @param unit           The unit of the target wait.
+     * @throws IllegalStateException    If the thread pool can't be resized.
+     * @throws IllegalArgumentException If the thread limits are invalid.
+     */
+    public synchronized void enableAdaptiveSizing(int minimumThreads, int maximumThreads, long targetWait, TimeUnit unit) {
+        if (!(threadpool instanceof ThreadPoolExecutor)) {
+            throw new IllegalStateException("Adaptive sizing needs a ThreadPoolExecutor.");
+        }
+        final AdaptivePoolSizer sizer = new AdaptivePoolSizer((ThreadPoolExecutor) threadpool, statistics,
+                minimumThreads, maximumThreads, unit.toNanos(targetWait));
+        disableAdaptiveSizing();
+        adaptiveSizer = getMonitor().scheduleWithFixedDelay(sizer,
+                ADAPTIVE_SIZING_INTERVAL_MILLIS, ADAPTIVE_SIZING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops resizing the thread pool. The pool keeps its current size.
+     */
+    public synchronized void disableAdaptiveSizing() {
+        if (adaptiveSizer != null) {
+            adaptiveSizer.cancel(false);
+            adaptiveSizer = null;
+        }
+    }
+
+    private ScheduledExecutorService getMonitor() {
+        if (monitor == null) {
+            monitor = Executors.newSingleThreadScheduledExecutor((Runnable runnable) -> {
+                final Thread thread = new Thread(runnable, "TaskLauncher-monitor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return monitor;
+    }
+
     /**
      * Schedule a Task for execution.
      *
      * @param task The Task to be executed.
      */
     public void launchTask(Task<?> task) {
+        launchTask(task, TaskPriority.NORMAL);
+    }
+
+    /**
+     * Schedule a Task for execution at the given priority.
+     *
+     * @param task     The Task to be executed.
+     * @param priority The priority of the Task.
+     * @throws RejectedExecutionException If the thread pool rejects the Task.
+     */
+    public void launchTask(Task<?> task, TaskPriority priority) {
         assert Platform.isFxApplicationThread() : "Attempted to call "
                 + "Tasklauncher.launchTask() from a thread that is not the "
                 + "JavaFX Application Thread.";
-        this.threadpool.execute(task);
+        this.threadpool.execute(new PrioritizedRunnable(task, priority, statistics));
     }
 
     /**
@@ -90,6 +288,21 @@ public class TaskLauncher {
         launchTask(makeTask(work, uponCompletion));
     }
 
+    /**
+     * Creates and runs a Task at the given priority. See
+     * {@link #makeAndLaunchTask(Supplier, Consumer)}.
+     *
+     * @param <T> The type parameter of the Task.
+     * @param work Whatever work needs to be done. This will be executed in a
+     * separate thread, and will produce a certain result of type T.
+     * @param uponCompletion This will be executed upon Task completion, and
+     * will consume the value returned by the Task.
+     * @param priority The priority of the Task.
+     */
+    public <T> void makeAndLaunchTask(Supplier<T> work, Consumer<T> uponCompletion, TaskPriority priority) {
+        launchTask(makeTask(work, uponCompletion), priority);
+    }
+
     /**
      * Creates and runs a Task that produces no value. Does nothing upon
      * completion. Any unchecked exceptions will be logged, but otherwise
@@ -105,6 +318,101 @@ public class TaskLauncher {
         }));
     }
 
+    /**
+     * Creates and runs a {@link ParallelChunkTask}, which transforms the items
+     * on the common fork/join pool and delivers the results in batches while
+     * it runs. Any unchecked exceptions will be logged, but otherwise
+     * disregarded. This method may only be called from the JavaFX Application
+     * thread.
+     *
+     * @param <T> The type of the input items.
+     * @param <R> The type of the results.
+     * @param items The input items.
+     * @param chunkSize The number of items in a chunk.
+     * @param transform Transforms a single item. This will be executed in
+     * several separate threads at once.
+     * @param onChunks Is given the results of finished chunks, in the order of
+     * the input, for instance to add them to an ObservableList.
+     * @return The launched Task, to observe its progress or cancel it.
+     */
+    public <T, R> ParallelChunkTask<T, R> launchParallelTask(List<T> items, int chunkSize, Function<? super T, ? extends R> transform, Consumer<List<R>> onChunks) {
+        final ParallelChunkTask<T, R> task = new ParallelChunkTask<>(items, chunkSize, transform, onChunks);
+        task.setOnFailed((WorkerStateEvent event) -> {
+            final Throwable throwable = task.getException();
+            if (throwable != null) {
+                Logger.getLogger(TaskLauncher.class.getName()).log(Level.SEVERE, null, throwable);
+            }
+        });
+        launchTask(task);
+        return task;
+    }
+
+    /**
+     * Creates and runs a Task for the given key, superseding any Task
+     * previously launched for that key. The superseded Task is cancelled, and
+     * should it complete anyway its result is ignored, so that only the
+     * result of the newest Task for a key is ever consumed. This method may
+     * only be called from the JavaFX Application thread.
+     *
+     * @param <T> The type parameter of the Task.
+     * @param key Identifies the work that is being superseded, such as the
+     * search box whose contents changed.
+     * @param work Whatever work needs to be done. This will be executed in a
+     * separate thread, and will produce a certain result of type T.
+     * @param uponSucceeded This will be executed upon Task completion, unless
+     * the Task has been superseded by then.
+     */
+    public <T> void launchLatest(Object key, Supplier<T> work, Consumer<T> uponSucceeded) {
+        latestTasks.launch(key, work, uponSucceeded);
+    }
+
+    /**
+     * Like {@link #launchLatest(Object, Supplier, Consumer)}, but only
+     * launches the Task once no newer work has been submitted for the key
+     * during the quiet period. Useful for reacting to keystrokes. This method
+     * may only be called from the JavaFX Application thread.
+     *
+     * @param <T> The type parameter of the Task.
+     * @param key Identifies the work that is being superseded.
+     * @param quietPeriod How long to wait for newer work before launching.
+     * @param work Whatever work needs to be done. This will be executed in a
+     * separate thread, and will produce a certain result of type T.
+     * @param uponSucceeded This will be executed upon Task completion, unless
+     * the Task has been superseded by then.
+     */
+    public <T> void launchLatestDebounced(Object key, Duration quietPeriod, Supplier<T> work, Consumer<T> uponSucceeded) {
+        latestTasks.debounce(key, quietPeriod, work, uponSucceeded);
+    }
+
+    /**
+     * Like {@link #launchLatest(Object, Supplier, Consumer)}, but launches at
+     * most one Task per interval for the key. Work submitted while the
+     * interval hasn't passed yet is launched at the end of the interval,
+     * unless it is superseded before then. This method may only be called
+     * from the JavaFX Application thread.
+     *
+     * @param <T> The type parameter of the Task.
+     * @param key Identifies the work that is being superseded.
+     * @param interval The minimum time between two launches.
+     * @param work Whatever work needs to be done. This will be executed in a
+     * separate thread, and will produce a certain result of type T.
+     * @param uponSucceeded This will be executed upon Task completion, unless
+     * the Task has been superseded by then.
+     */
+    public <T> void launchLatestThrottled(Object key, Duration interval, Supplier<T> work, Consumer<T> uponSucceeded) {
+        latestTasks.throttle(key, interval, work, uponSucceeded);
+    }
+
+    /**
+     * Cancels the Task running or waiting to be launched for the given key, if
+     * any. This method may only be called from the JavaFX Application thread.
+     *
+     * @param key The key the work was launched with.
+     */
+    public void cancelLatest(Object key) {
+        latestTasks.cancel(key);
+    }
+
     /**
      * Creates a Task that produces a value and then consumes that value upon
      * completion. Any unchecked exceptions will be logged, but otherwise
@@ -140,20 +448,84 @@ public class TaskLauncher {
         return task;
     }
 
+    /**
+     * Runs work on the thread pool without creating a Task, and returns a
+     * future of its result. Cheaper than a Task for small pieces of work, and
+     * can be composed with other futures; use
+     * {@link #getApplicationThreadExecutor()} for continuations that touch the
+     * scene graph. Cancelling the future before the work starts prevents it
+     * from running; cancelling it while running interrupts the work. Unlike
+     * the Task based methods, this method may be called from any thread.
+     *
+     * @param <T> The type of the result.
+     * @param work Whatever work needs to be done. This will be executed in a
+     * separate thread.
+     * @return A future that completes with the result of the work.
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> work) {
+        return supplyAsync(work, TaskPriority.NORMAL);
+    }
+
+    /**
+     * Runs work on the thread pool at the given priority. See
+     * {@link #supplyAsync(Supplier)}.
+     *
+     * @param <T> The type of the result.
+     * @param work Whatever work needs to be done. This will be executed in a
+     * separate thread.
+     * @param priority The priority of the work.
+     * @return A future that completes with the result of the work.
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> work, TaskPriority priority) {
+        final FutureWork<T> futureWork = new FutureWork<>(work);
+        executeRunnable(futureWork, priority);
+        return futureWork.getFuture();
+    }
+
+    /**
+     * @return An Executor that runs everything on this launcher's thread pool,
+     * for background stages of CompletableFuture chains. A bounded launcher
+     * with a full queue rejects such stages with a RejectedExecutionException,
+     * whatever its rejection policy, since they can't be dropped safely.
+     */
+    public Executor getBackgroundExecutor() {
+        return this::executeRunnable;
+    }
+
+    /**
+     * @return An Executor that runs everything on the JavaFX Application
+     * thread, for stages of CompletableFuture chains that update the UI, such
+     * as thenAcceptAsync(consumer, executor).
+     */
+    public Executor getApplicationThreadExecutor() {
+        return Platform::runLater;
+    }
+
     /**
      * Schedule a Runnable for execution.
      *
      * @param runnable
      */
     public void executeRunnable(Runnable runnable) {
-        this.threadpool.execute(runnable);
+        executeRunnable(runnable, TaskPriority.NORMAL);
+    }
+
+    /**
+     * Schedule a Runnable for execution at the given priority.
+     *
+     * @param runnable The Runnable to be executed.
+     * @param priority The priority of the Runnable.
+     */
+    public void executeRunnable(Runnable runnable, TaskPriority priority) {
+        this.threadpool.execute(new PrioritizedRunnable(runnable, priority, statistics));
     }
 
     /**
      * Checks if this is the Application thread. If so, it just runs this
      * runnable on this thread. If not, it schedules it for execution on the
      * Application thread. Hence, this method can make no guarantees about when
-     * the runnable will be executed.
+     * the runnable will be executed. For high-frequency updates from
+     * background threads, use an {@link UpdateBatcher} instead.
      *
      * @param runnable The runnable that is ensured to be executed on the JavaFX
      * Application thread.
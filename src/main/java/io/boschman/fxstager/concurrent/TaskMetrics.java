@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable data class. A snapshot of the metrics of a TaskLauncher, taken
+ * with {@link TaskLauncher#getMetrics()}. All counts and totals are since the
+ * TaskLauncher was created, so that the difference between two snapshots
+ * covers the time in between.
+ *
+ * @author Arjan Boschman
+ */
+public final class TaskMetrics {
+
+    private final int queueDepth;
+    private final int poolSize;
+    private final int activeThreads;
+    private final long submittedCount;
+    private final long startedCount;
+    private final long completedCount;
+    private final long failedCount;
+    private final long totalWaitNanos;
+    private final long maximumWaitNanos;
+    private final long totalRunNanos;
+
+    TaskMetrics(int queueDepth, int poolSize, int activeThreads, long submittedCount, long startedCount,
+            long completedCount, long failedCount, long totalWaitNanos, long maximumWaitNanos, long totalRunNanos) {
+        this.queueDepth = queueDepth;
+        this.poolSize = poolSize;
+        this.activeThreads = activeThreads;
+        this.submittedCount = submittedCount;
+        this.startedCount = startedCount;
+        this.completedCount = completedCount;
+        this.failedCount = failedCount;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maximumWaitNanos = maximumWaitNanos;
+        this.totalRunNanos = totalRunNanos;
+    }
+
+    /**
+     * @return The number of tasks waiting in the queue of the thread pool.
+     *         Always zero for thread pools without a queue.
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return The number of threads in the thread pool.
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @return The number of threads running a task.
+     */
+    public int getActiveThreads() {
+        return activeThreads;
+    }
+
+    /**
+     * @return The number of tasks submitted.
+     */
+    public long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    /**
+     * @return The number of tasks that have started running.
+     */
+    public long getStartedCount() {
+        return startedCount;
+    }
+
+    /**
+     * @return The number of tasks that have finished running, including the
+     *         failed ones.
+     */
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * @return The number of tasks that threw an exception.
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * @return The total time tasks spent waiting to be started, in
+     *         nanoseconds.
+     */
+    public long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    /**
+     * @return The longest time a task spent waiting to be started, in
+     *         nanoseconds.
+     */
+    public long getMaximumWaitNanos() {
+        return maximumWaitNanos;
+    }
+
+    /**
+     * @return The total time tasks spent running, in nanoseconds.
+     */
+    public long getTotalRunNanos() {
+        return totalRunNanos;
+    }
+
+    /**
+     * @return The average time a task spent waiting to be started, in
+     *         nanoseconds.
+     */
+    public long getAverageWaitNanos() {
+        return startedCount == 0 ? 0 : totalWaitNanos / startedCount;
+    }
+
+    /**
+     * @return The average time a task spent running, in nanoseconds.
+     */
+    public long getAverageRunNanos() {
+        return completedCount == 0 ? 0 : totalRunNanos / completedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskMetrics{queueDepth=" + queueDepth
+                + ", poolSize=" + poolSize
+                + ", activeThreads=" + activeThreads
+                + ", submitted=" + submittedCount
+                + ", completed=" + completedCount
+                + ", failed=" + failedCount
+                + ", averageWaitMillis=" + TimeUnit.NANOSECONDS.toMillis(getAverageWaitNanos())
+                + ", maximumWaitMillis=" + TimeUnit.NANOSECONDS.toMillis(maximumWaitNanos)
+                + ", averageRunMillis=" + TimeUnit.NANOSECONDS.toMillis(getAverageRunNanos())
+                + '}';
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+/**
+ * The priority of work submitted to a TaskLauncher. Only a TaskLauncher with
+ * a prioritized thread pool, see {@link TaskLauncher#bounded(int, int,
+ * RejectionPolicy)}, takes priorities into account. Within the same priority,
+ * work is executed in the order in which it was submitted.
+ *
+ * @author Arjan Boschman
+ */
+public enum TaskPriority {
+
+    /**
+     * Work the user is waiting for, such as the result of a click.
+     */
+    USER_INITIATED,
+    /**
+     * The default priority.
+     */
+    NORMAL,
+    /**
+     * Work nobody is waiting for yet, such as prefetching.
+     */
+    BACKGROUND;
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the statistics of the work run by a TaskLauncher. This class is
+ * thread safe.
+ *
+ * @author Arjan Boschman
+ */
+final class TaskStatistics {
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final AtomicLong maximumWaitNanos = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+
+    void recordSubmitted() {
+        submitted.increment();
+    }
+
+    /**
+     * Runs work, recording how long it waited and ran, and whether it failed.
+     *
+     * @param work        The work.
+     * @param submittedAt The System.nanoTime at which the work was submitted.
+     */
+    void run(Runnable work, long submittedAt) {
+        final long start = System.nanoTime();
+        final long waitNanos = start - submittedAt;
+        started.increment();
+        totalWaitNanos.add(waitNanos);
+        maximumWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        active.incrementAndGet();
+        boolean succeeded = false;
+        try {
+            work.run();
+            succeeded = !hasFailed(work);
+        } finally {
+            active.decrementAndGet();
+            totalRunNanos.add(System.nanoTime() - start);
+            completed.increment();
+            if (!succeeded) {
+                failed.increment();
+            }
+        }
+    }
+
+    int getActiveCount() {
+        return active.get();
+    }
+
+    long getStartedCount() {
+        return started.sum();
+    }
+
+    long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    /**
+     * @param queueDepth The number of queued tasks.
+     * @param poolSize   The number of threads in the pool.
+     * @return A snapshot of the statistics.
+     */
+    TaskMetrics snapshot(int queueDepth, int poolSize) {
+        return new TaskMetrics(queueDepth, poolSize, active.get(), submitted.sum(), started.sum(),
+                completed.sum(), failed.sum(), totalWaitNanos.sum(), maximumWaitNanos.get(), totalRunNanos.sum());
+    }
+
+    /**
+     * Tasks and futures catch the exceptions of the work they run, so they
+     * have to be asked whether they failed.
+     */
+    private static boolean hasFailed(Runnable work) {
+        if (work instanceof FutureWork) {
+            return ((FutureWork<?>) work).hasFailed();
+        }
+        if (work instanceof Future && ((Future<?>) work).isDone()) {
+            try {
+                ((Future<?>) work).get();
+            } catch (ExecutionException ex) {
+                return true;
+            } catch (CancellationException ex) {
+                return false;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return false;
+    }
+
+}
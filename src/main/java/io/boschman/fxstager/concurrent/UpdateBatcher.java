@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+/**
+ * Batches UI updates posted from background threads, and applies them on the
+ * JavaFX Application thread at most once per pulse. Unlike calling
+ * Platform.runLater for every update, this posts a single event per batch, so
+ * a high-frequency feed can't flood the event queue and starve input
+ * handling.
+ * <p>
+ * Updates posted with a key are coalesced: if several updates for the same
+ * key are posted before the next drain, only the last one is applied, at the
+ * position of the first. Optionally, the time spent applying updates per pulse
+ * can be limited; whatever doesn't fit is applied on the next pulse.
+ * <p>
+ * Updates can be posted from any thread. Posting never blocks.
+ *
+ * @author Arjan Boschman
+ */
+public class UpdateBatcher {
+
+    private final long drainBudgetNanos;
+    private final Queue<Runnable> updates = new ConcurrentLinkedQueue<>();
+    private final Map<Object, Runnable> latestKeyedUpdates = new ConcurrentHashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AnimationTimer drainTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+
+    /**
+     * Creates a new UpdateBatcher that applies every pending update on each
+     * pulse.
+     */
+    public UpdateBatcher() {
+        this(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a new UpdateBatcher that spends at most the given time per
+     * pulse applying updates. At least one update is applied per pulse.
+     *
+     * @param drainBudget The maximum time to spend per pulse.
+     * @param unit        The unit of the drainBudget.
+     */
+    public UpdateBatcher(long drainBudget, TimeUnit unit) {
+        this.drainBudgetNanos = unit.toNanos(drainBudget);
+    }
+
+    /**
+     * Schedules an update to be applied on the JavaFX Application thread.
+     *
+     * @param update The update.
+     */
+    public void post(Runnable update) {
+        updates.add(update);
+        scheduleDrain();
+    }
+
+    /**
+     * Schedules an update to be applied on the JavaFX Application thread,
+     * replacing any update for the same key that hasn't been applied yet.
+     *
+     * @param key    Identifies the target of the update, such as the control
+     *               being updated.
+     * @param update The update.
+     */
+    public void post(Object key, Runnable update) {
+        if (latestKeyedUpdates.put(key, update) == null) {
+            updates.add(() -> {
+                final Runnable latest = latestKeyedUpdates.remove(key);
+                if (latest != null) {
+                    latest.run();
+                }
+            });
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * @return An estimate of the number of updates waiting to be applied.
+     */
+    public int getPendingCount() {
+        return updates.size();
+    }
+
+    private void scheduleDrain() {
+        if (!updates.isEmpty() && draining.compareAndSet(false, true)) {
+            Platform.runLater(drainTimer::start);
+        }
+    }
+
+    private void drain() {
+        final long start = System.nanoTime();
+        Runnable update;
+        while ((update = updates.poll()) != null) {
+            try {
+                update.run();
+            } catch (RuntimeException ex) {
+                Logger.getLogger(UpdateBatcher.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            if (System.nanoTime() - start >= drainBudgetNanos) {
+                return;
+            }
+        }
+        drainTimer.stop();
+        draining.set(false);
+        //Something may have been posted after the queue was found empty.
+        scheduleDrain();
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.loading;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * A static utility class that compiles FXML documents into
+ * {@link FxmlFactory} classes at build time, and lists them in
+ * {@code META-INF/services}, so that {@link Loader} builds those documents
+ * without parsing them or using reflection. Meant to be run after the
+ * controllers have been compiled, which the fxml profile of the build does
+ * for src/main/resources:
+ * <pre>
+ * java io.boschman.fxstager.loading.FxmlCompiler &lt;source directory&gt; &lt;generated sources directory&gt; &lt;classes directory&gt;
+ * </pre>
+ * The generated factories are matched by the URL their class loader resolves
+ * the document's path to, so the source directory should be a resource root.
+ * <p>
+ * Only a subset of FXML is compiled. Documents that use anything else are
+ * reported and left to FXMLLoader, which keeps loading them as before. The
+ * subset consists of:
+ * <ul>
+ * <li>import processing instructions, of classes and of packages;</li>
+ * <li>elements of classes with a public no-argument constructor, or with a
+ * constructor whose {@code @NamedArg} arguments are exactly the element's
+ * attributes, such as {@code <Insets top="1" right="2" bottom="3"
+ * left="4"/>};</li>
+ * <li>fx:id, and fx:controller on the root element;</li>
+ * <li>property attributes of type String, primitive, boxed primitive, enum,
+ * or of any type with a static {@code valueOf(String)} method, such as
+ * Color, and comma separated read-only lists of such types, such as
+ * styleClass;</li>
+ * <li>static property attributes, such as {@code GridPane.rowIndex};</li>
+ * <li>event handler attributes that name a controller method, such as
+ * {@code onAction="#save"};</li>
+ * <li>property elements that hold elements, and elements added to their
+ * parent's default property.</li>
+ * </ul>
+ * Not supported are fx:include, fx:define, fx:reference, fx:copy, fx:root,
+ * fx:value, fx:factory, fx:constant, scripts, text content, location
+ * ({@code @}), resource ({@code %}) and expression ({@code $}) values, and
+ * change listeners. Controllers must have a public no-argument constructor,
+ * and the fields, event handlers and initialize method FXMLLoader would use
+ * must not be private. Members that are neither public nor private are only
+ * used on classes compiled into the classes directory, since the factory
+ * doesn't share a package with classes that come from a library.
+ *
+ * @author Arjan Boschman
+ */
+public final class FxmlCompiler {
+
+    private static final String EXTENSION = ".fxml";
+    private static final String SERVICES_FILE = "META-INF/services/" + FxmlFactory.class.getName();
+    private static final String GENERATED_MARKER = " # Generated by FxmlCompiler";
+
+    /**
+     * Compiles the FXML documents in a directory.
+     *
+     * @param args The source directory, the directory to write the generated
+     *             sources to, and the classes directory.
+     * @throws IOException If a document can't be read or a file can't be
+     *                     written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            throw new IllegalArgumentException("Usage: FxmlCompiler <source directory> <generated sources directory> <classes directory>");
+        }
+        compile(Paths.get(args[0]), Paths.get(args[1]), Paths.get(args[2]));
+    }
+
+    /**
+     * Compiles all supported FXML documents in a directory and its
+     * subdirectories. The classes directory must hold the compiled
+     * controllers; the other classes the documents refer to must be on the
+     * classpath as well.
+     *
+     * @param sourceDirectory           The directory to search for FXML
+     *                                  documents.
+     * @param generatedSourcesDirectory The directory to write the sources of
+     *                                  the factories to.
+     * @param classesDirectory          The directory to write the factories
+     *                                  and the service file to.
+     * @return The names of the documents a factory was compiled for.
+     * @throws IOException If a document can't be read or a file can't be
+     *                     written.
+     */
+    public static List<String> compile(Path sourceDirectory, Path generatedSourcesDirectory, Path classesDirectory) throws IOException {
+        final List<Path> files;
+        try (final Stream<Path> walk = Files.walk(sourceDirectory)) {
+            files = walk.filter((Path path) -> path.toString().endsWith(EXTENSION) && Files.isRegularFile(path))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        final Map<String, Path> sources = new LinkedHashMap<>();
+        final Map<String, String> factories = new LinkedHashMap<>();
+        try (final URLClassLoader classLoader = new URLClassLoader(new URL[]{classesDirectory.toUri().toURL()}, FxmlCompiler.class.getClassLoader())) {
+            for (Path file : files) {
+                final String key = sourceDirectory.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                final FxmlSourceGenerator generator = new FxmlSourceGenerator(key, classLoader, classesDirectory);
+                try (final InputStream document = Files.newInputStream(file)) {
+                    generator.generate(document);
+                } catch (FxmlSourceGenerator.UnsupportedFxmlException ex) {
+                    System.err.println("FxmlCompiler: " + key + " is left to FXMLLoader. " + ex.getMessage());
+                    continue;
+                }
+                final String simpleName = generator.getSimpleName();
+                String className = qualify(generator.getPackageName(), simpleName);
+                for (int i = 2; factories.containsValue(className); i++) {
+                    generator.setSimpleName(simpleName + i);
+                    className = qualify(generator.getPackageName(), simpleName + i);
+                }
+                final Path sourceFile = generatedSourcesDirectory.resolve(className.replace('.', File.separatorChar) + ".java");
+                Files.createDirectories(sourceFile.getParent());
+                Files.write(sourceFile, generator.getSource().getBytes(StandardCharsets.UTF_8));
+                sources.put(key, sourceFile);
+                factories.put(key, className);
+            }
+        }
+        if (!sources.isEmpty() && !compileSources(new ArrayList<>(sources.values()), classesDirectory, false)) {
+            for (Map.Entry<String, Path> source : sources.entrySet()) {
+                if (!compileSources(Collections.singletonList(source.getValue()), classesDirectory, true)) {
+                    System.err.println("FxmlCompiler: " + source.getKey() + " is left to FXMLLoader. Its factory doesn't compile.");
+                    Files.delete(source.getValue());
+                    factories.remove(source.getKey());
+                }
+            }
+        }
+        writeServices(classesDirectory, factories.values());
+        return new ArrayList<>(factories.keySet());
+    }
+
+    private static String qualify(String packageName, String simpleName) {
+        return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+    private static boolean compileSources(List<Path> sources, Path classesDirectory, boolean report) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("No Java compiler is available. FxmlCompiler must run on a JDK.");
+        }
+        final StringWriter diagnostics = new StringWriter();
+        try (final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            final Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(
+                    sources.stream().map(Path::toFile).collect(Collectors.toList()));
+            final List<String> options = Arrays.asList(
+                    "-d", classesDirectory.toString(),
+                    "-classpath", classesDirectory + File.pathSeparator + System.getProperty("java.class.path"),
+                    "-source", "1.8", "-target", "1.8", "-proc:none", "-nowarn", "-Xlint:-options");
+            final boolean compiled = compiler.getTask(new PrintWriter(diagnostics), fileManager, null, options, null, compilationUnits).call();
+            if (!compiled && report) {
+                System.err.print(diagnostics);
+            }
+            return compiled;
+        }
+    }
+
+    private static void writeServices(Path classesDirectory, Iterable<String> classNames) throws IOException {
+        final Path servicesFile = classesDirectory.resolve(SERVICES_FILE);
+        final List<String> lines = new ArrayList<>();
+        if (Files.exists(servicesFile)) {
+            for (String line : Files.readAllLines(servicesFile, StandardCharsets.UTF_8)) {
+                if (!line.endsWith(GENERATED_MARKER)) {
+                    lines.add(line);
+                }
+            }
+        }
+        for (String className : classNames) {
+            lines.add(className + GENERATED_MARKER);
+        }
+        Files.createDirectories(servicesFile.getParent());
+        Files.write(servicesFile, lines, StandardCharsets.UTF_8);
+    }
+
+    private FxmlCompiler() {
+        //Private constructor to make sure no instance is created.
+    }
+
+}
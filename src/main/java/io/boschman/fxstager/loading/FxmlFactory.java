@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.loading;
+
+import java.net.URL;
+import javafx.scene.Node;
+
+/**
+ * Builds the node graph and controller of one particular FXML document in
+ * plain Java, without parsing the document or using reflection. Typically
+ * generated from the FXML document at build time.
+ * <p>
+ * Implementations can be registered with {@link Loader#registerFactory(URL,
+ * FxmlFactory)}, or listed in
+ * {@code META-INF/services/io.boschman.fxstager.loading.FxmlFactory}, in which
+ * case the Loader uses them for the URL their class loader resolves their
+ * resource name to. {@link FxmlCompiler} generates and lists them at build
+ * time. The result must be equivalent to what FXMLLoader produces for the
+ * document.
+ *
+ * @author Arjan Boschman
+ * @param <N> The type of root node.
+ * @param <C> The type of controller belonging to the node.
+ */
+public interface FxmlFactory<N extends Node, C> {
+
+    /**
+     * @return The name of the FXML document this factory replaces, relative
+     *         to the root of the classpath, such as "screens/Main.fxml". Used
+     *         to match discovered factories against the URLs being loaded.
+     */
+    String getResourceName();
+
+    /**
+     * Builds a new instance of the node graph, with its controller wired up.
+     *
+     * @param location The URL the document would have been loaded from. Can
+     *                 be used to resolve relative resources.
+     * @return A LoadedNode that wraps both the node and the controller.
+     * @throws ScreenLoaderException If an error occurs building the node.
+     */
+    LoadedNode<N, C> create(URL location);
+
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.loading;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A read-only pack of FXML documents, created by {@link FxmlPacker}. A pack
+ * file is memory mapped, so that documents are read from the pack without any
+ * further file I/O. A pack that isn't a file, such as one inside a jar, is
+ * read into memory once when it is opened.
+ * <p>
+ * Every document in the pack stands in for the document at its key resolved
+ * against a base location, typically the directory the documents were packed
+ * from. Once the pack has been added with {@link Loader#addPack(FxmlPack)},
+ * loading such a URL or pathname reads the document from the pack instead.
+ * Documents can also be loaded by key with
+ * {@link Loader#load(FxmlPack, String)}. Relative references in the
+ * documents, such as includes and stylesheets, are resolved against that same
+ * location.
+ * <p>
+ * A document that was compiled by {@link FxmlCompiler} is linked to the
+ * {@link FxmlFactory} generated for it, which is its parsed form: loading it
+ * from the pack builds it through that factory, without parsing any XML.
+ * FXMLLoader can only build a document from its XML, so every other document
+ * is stored as XML, exactly as it was packed, and is parsed every time it is
+ * loaded. For those, a pack still saves the I/O of opening and reading each
+ * document separately. The factories are instantiated on first use, through
+ * the context class loader of the thread that opened the pack.
+ *
+ * @author Arjan Boschman
+ */
+public final class FxmlPack {
+
+    static final int MAGIC = 0x4658504B;
+    static final int VERSION = 2;
+
+    private final Map<String, ByteBuffer> documentsByKey;
+    private final Map<String, ByteBuffer> documentsByLocation = new LinkedHashMap<>();
+    private final Map<String, String> factoryNamesByKey;
+    private final Map<String, String> keysByLocation = new LinkedHashMap<>();
+    private final ConcurrentMap<String, FxmlFactory<?, ?>> factories = new ConcurrentHashMap<>();
+    private final ClassLoader classLoader;
+    private final URL base;
+
+    private FxmlPack(Map<String, ByteBuffer> documentsByKey, Map<String, String> factoryNamesByKey, URL base) throws MalformedURLException {
+        this.documentsByKey = documentsByKey;
+        this.factoryNamesByKey = factoryNamesByKey;
+        this.base = base;
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        this.classLoader = contextClassLoader == null ? FxmlPack.class.getClassLoader() : contextClassLoader;
+        for (Map.Entry<String, ByteBuffer> entry : documentsByKey.entrySet()) {
+            final String location = new URL(base, entry.getKey()).toExternalForm();
+            documentsByLocation.put(location, entry.getValue());
+            keysByLocation.put(location, entry.getKey());
+        }
+    }
+
+    /**
+     * Opens a pack file.
+     *
+     * @param file The pack file.
+     * @param base The location the keys of the documents are resolved
+     *             against. For a directory, this URL must end with a slash.
+     * @return The opened pack.
+     * @throws IOException If the file can't be read or isn't a valid pack.
+     */
+    public static FxmlPack open(Path file, URL base) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file.toString(), base);
+        }
+    }
+
+    /**
+     * Opens a pack, such as one built into the classpath by the build. The
+     * keys of the documents are resolved against the directory the pack is
+     * in, which is where the build puts the pack of a resource directory.
+     *
+     * @param pack The URL of the pack.
+     * @return The opened pack.
+     * @throws IOException If the pack can't be read or isn't a valid pack.
+     */
+    public static FxmlPack open(URL pack) throws IOException {
+        final URL base = new URL(pack, ".");
+        if ("file".equals(pack.getProtocol())) {
+            try {
+                return open(Paths.get(pack.toURI()), base);
+            } catch (URISyntaxException ex) {
+                throw new IOException("Not a valid pack location: " + pack, ex);
+            }
+        }
+        try (final InputStream inputStream = pack.openStream()) {
+            final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                contents.write(buffer, 0, read);
+            }
+            return read(ByteBuffer.wrap(contents.toByteArray()), pack.toExternalForm(), base);
+        }
+    }
+
+    private static FxmlPack read(ByteBuffer buffer, String name, URL base) throws IOException {
+        try {
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not an FXML pack: " + name);
+            }
+            final int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported FXML pack version " + version + ": " + name);
+            }
+            final int count = buffer.getInt();
+            final Map<String, ByteBuffer> documents = new LinkedHashMap<>();
+            final Map<String, String> factoryNames = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                final String key = readString(buffer);
+                final String factoryName = readString(buffer);
+                if (!factoryName.isEmpty()) {
+                    factoryNames.put(key, factoryName);
+                }
+                final int offset = buffer.getInt();
+                final int length = buffer.getInt();
+                final ByteBuffer document = buffer.duplicate();
+                document.limit(offset + length).position(offset);
+                documents.put(key, document.slice().asReadOnlyBuffer());
+            }
+            return new FxmlPack(documents, factoryNames, base);
+        } catch (IllegalArgumentException | BufferUnderflowException ex) {
+            throw new IOException("Corrupt FXML pack: " + name, ex);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The location the keys of the documents are resolved against.
+     */
+    public URL getBase() {
+        return base;
+    }
+
+    /**
+     * @return The keys of all documents in the pack.
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(documentsByKey.keySet());
+    }
+
+    /**
+     * @param key The key of a document.
+     * @return True if the pack contains a document with the given key.
+     */
+    public boolean contains(String key) {
+        return documentsByKey.containsKey(key);
+    }
+
+    /**
+     * Opens a document in the pack by key.
+     *
+     * @param key The key of the document.
+     * @return A stream of the contents of the document, or null if the pack
+     *         doesn't contain the key.
+     */
+    public InputStream openStream(String key) {
+        final ByteBuffer document = documentsByKey.get(key);
+        return document == null ? null : new ByteBufferInputStream(document.duplicate());
+    }
+
+    /**
+     * @param url The URL of an FXML document.
+     * @return A stream of the contents of the document that stands in for the
+     *         given URL, or null if there is none in the pack.
+     */
+    InputStream openStream(URL url) {
+        final ByteBuffer document = documentsByLocation.get(url.toExternalForm());
+        return document == null ? null : new ByteBufferInputStream(document.duplicate());
+    }
+
+    /**
+     * @param key The key of a document.
+     * @return True if the document with the given key is linked to a factory,
+     *         so that it is built without parsing its XML.
+     */
+    public boolean isCompiled(String key) {
+        return factoryNamesByKey.containsKey(key);
+    }
+
+    /**
+     * @param key The key of a document.
+     * @return The factory the document with the given key is linked to, or
+     *         null if it isn't linked to one or the factory can't be
+     *         instantiated, in which case the document is parsed instead.
+     */
+    FxmlFactory<?, ?> getFactory(String key) {
+        final String factoryName = factoryNamesByKey.get(key);
+        if (factoryName == null) {
+            return null;
+        }
+        final FxmlFactory<?, ?> factory = factories.get(key);
+        if (factory != null) {
+            return factory;
+        }
+        try {
+            final FxmlFactory<?, ?> created = (FxmlFactory<?, ?>) Class.forName(factoryName, true, classLoader).newInstance();
+            final FxmlFactory<?, ?> previous = factories.putIfAbsent(key, created);
+            return previous == null ? created : previous;
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException ex) {
+            Logger.getLogger(FxmlPack.class.getName()).log(Level.WARNING, "Can't instantiate factory " + factoryName + ", parsing " + key + " instead.", ex);
+            return null;
+        }
+    }
+
+    /**
+     * @param url The URL of an FXML document.
+     * @return The factory the document that stands in for the given URL is
+     *         linked to, or null if there is none.
+     */
+    FxmlFactory<?, ?> getFactory(URL url) {
+        final String key = keysByLocation.get(url.toExternalForm());
+        return key == null ? null : getFactory(key);
+    }
+
+    /**
+     * An InputStream that reads the remaining bytes of a buffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.loading;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A static utility class that packs all FXML documents in a directory into a
+ * single pack file, to be opened with {@link FxmlPack}. Meant to be run at
+ * build time, for instance through the exec plugin:
+ * <pre>
+ * java io.boschman.fxstager.loading.FxmlPacker &lt;source directory&gt; &lt;pack file&gt; [&lt;classes directory&gt;]
+ * </pre>
+ * The fxml profile of the build does so for src/main/resources, writing
+ * fxml.pack to the root of the classes, after {@link FxmlCompiler} has
+ * compiled the documents it supports. Given the classes directory, every
+ * document is linked to the factory compiled from it, so that the pack holds
+ * it in parsed form: loading it from the pack builds it through that factory,
+ * without parsing any XML.
+ * <p>
+ * A pack file consists of a header, an index and the documents. The header
+ * holds a magic number, the format version and the number of documents. The
+ * index holds, for every document, its key, the class name of its factory or
+ * an empty string, and the offset and length of its contents. The key of a
+ * document is its path relative to the source directory, with forward
+ * slashes.
+ *
+ * @author Arjan Boschman
+ */
+public final class FxmlPacker {
+
+    private static final String EXTENSION = ".fxml";
+
+    /**
+     * Packs the FXML documents in a directory.
+     *
+     * @param args The source directory, the pack file and optionally the
+     *             classes directory.
+     * @throws IOException If a document can't be read or the pack file can't
+     *                     be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2) {
+            pack(Paths.get(args[0]), Paths.get(args[1]));
+        } else if (args.length == 3) {
+            pack(Paths.get(args[0]), Paths.get(args[1]), Paths.get(args[2]));
+        } else {
+            throw new IllegalArgumentException("Usage: FxmlPacker <source directory> <pack file> [<classes directory>]");
+        }
+    }
+
+    /**
+     * Packs all FXML documents in a directory and its subdirectories.
+     *
+     * @param sourceDirectory The directory to search for FXML documents.
+     * @param packFile        The pack file to write.
+     * @throws IOException If a document can't be read or the pack file can't
+     *                     be written.
+     */
+    public static void pack(Path sourceDirectory, Path packFile) throws IOException {
+        pack(sourceDirectory, packFile, Collections.emptyMap());
+    }
+
+    /**
+     * Packs all FXML documents in a directory and its subdirectories, linking
+     * each to the factory that {@link FxmlCompiler} compiled from it, if any.
+     * A factory is linked when the classes directory lists it as a service,
+     * and the location its class loader resolves its resource name to is the
+     * key of the document resolved against the classes directory.
+     *
+     * @param sourceDirectory  The directory to search for FXML documents.
+     * @param packFile         The pack file to write.
+     * @param classesDirectory The directory holding the compiled factories
+     *                         and a copy of the documents.
+     * @throws IOException If a document can't be read or the pack file can't
+     *                     be written.
+     */
+    public static void pack(Path sourceDirectory, Path packFile, Path classesDirectory) throws IOException {
+        final URL base = classesDirectory.toUri().toURL();
+        try (final URLClassLoader classLoader = new URLClassLoader(new URL[]{base}, FxmlPacker.class.getClassLoader())) {
+            final List<FxmlFactory<?, ?>> discovered = new ArrayList<>();
+            for (FxmlFactory<?, ?> factory : ServiceLoader.load(FxmlFactory.class, classLoader)) {
+                discovered.add(factory);
+            }
+            final Map<String, FxmlFactory<?, ?>> factoriesByLocation = Loader.indexByLocation(discovered);
+            final Map<String, String> factories = new HashMap<>();
+            for (String key : listDocuments(sourceDirectory).keySet()) {
+                final FxmlFactory<?, ?> factory = factoriesByLocation.get(new URL(base, key).toExternalForm());
+                if (factory != null) {
+                    factories.put(key, factory.getClass().getName());
+                }
+            }
+            pack(sourceDirectory, packFile, factories);
+        }
+    }
+
+    private static void pack(Path sourceDirectory, Path packFile, Map<String, String> factories) throws IOException {
+        final Map<String, byte[]> documents = new LinkedHashMap<>();
+        for (Map.Entry<String, Path> document : listDocuments(sourceDirectory).entrySet()) {
+            documents.put(document.getKey(), Files.readAllBytes(document.getValue()));
+        }
+        try (final OutputStream outputStream = Files.newOutputStream(packFile)) {
+            write(documents, factories, outputStream);
+        }
+    }
+
+    private static Map<String, Path> listDocuments(Path sourceDirectory) throws IOException {
+        final List<Path> files;
+        try (final Stream<Path> walk = Files.walk(sourceDirectory)) {
+            files = walk.filter((Path path) -> path.toString().endsWith(EXTENSION) && Files.isRegularFile(path))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        final Map<String, Path> documents = new LinkedHashMap<>();
+        for (Path file : files) {
+            documents.put(sourceDirectory.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/"), file);
+        }
+        return documents;
+    }
+
+    /**
+     * Writes documents in the pack format.
+     *
+     * @param documents    The contents of the documents, by key.
+     * @param outputStream The stream to write to.
+     * @throws IOException If the stream can't be written.
+     */
+    public static void write(Map<String, byte[]> documents, OutputStream outputStream) throws IOException {
+        write(documents, Collections.emptyMap(), outputStream);
+    }
+
+    /**
+     * Writes documents in the pack format, linking some of them to a
+     * factory.
+     *
+     * @param documents    The contents of the documents, by key.
+     * @param factories    The class names of the factories that build the
+     *                     documents, by key. Documents without one are parsed
+     *                     when they are loaded.
+     * @param outputStream The stream to write to.
+     * @throws IOException If the stream can't be written.
+     */
+    public static void write(Map<String, byte[]> documents, Map<String, String> factories, OutputStream outputStream) throws IOException {
+        final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        final DataOutputStream index = new DataOutputStream(indexBytes);
+        int headerSize = 12;
+        for (String key : documents.keySet()) {
+            headerSize += 2 + key.getBytes(StandardCharsets.UTF_8).length
+                    + 2 + factories.getOrDefault(key, "").getBytes(StandardCharsets.UTF_8).length + 8;
+        }
+        int offset = headerSize;
+        for (Map.Entry<String, byte[]> document : documents.entrySet()) {
+            final byte[] key = document.getKey().getBytes(StandardCharsets.UTF_8);
+            final byte[] factory = factories.getOrDefault(document.getKey(), "").getBytes(StandardCharsets.UTF_8);
+            index.writeShort(key.length);
+            index.write(key);
+            index.writeShort(factory.length);
+            index.write(factory);
+            index.writeInt(offset);
+            index.writeInt(document.getValue().length);
+            offset += document.getValue().length;
+        }
+        final DataOutputStream pack = new DataOutputStream(outputStream);
+        pack.writeInt(FxmlPack.MAGIC);
+        pack.writeInt(FxmlPack.VERSION);
+        pack.writeInt(documents.size());
+        indexBytes.writeTo(pack);
+        for (byte[] contents : documents.values()) {
+            pack.write(contents);
+        }
+        pack.flush();
+    }
+
+    private FxmlPacker() {
+        //Private constructor to make sure no instance is created.
+    }
+
+}
@@ -0,0 +1,916 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.loading;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javafx.beans.DefaultProperty;
+import javafx.beans.NamedArg;
+import javafx.event.Event;
+import javafx.event.EventHandler;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.Node;
+import javax.lang.model.SourceVersion;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Generates the Java source of an {@link FxmlFactory} for a single FXML
+ * document, doing at build time what FXMLLoader does every time the document
+ * is loaded: resolving classes, properties, coercions and controller members.
+ * Only the subset of FXML documented on {@link FxmlCompiler} is supported;
+ * for any other document an {@link UnsupportedFxmlException} is thrown, so
+ * that it is left to FXMLLoader.
+ * <p>
+ * The generated statements follow the order in which FXMLLoader processes
+ * the document. An element is constructed, given its fx:id and injected into
+ * the controller, then its child elements are processed, then its property
+ * attributes are set in document order, followed by its event handlers and
+ * static properties. Finally it is added to its parent.
+ *
+ * @author Arjan Boschman
+ */
+final class FxmlSourceGenerator {
+
+    private static final String FX_PREFIX = "fx";
+    private static final String FX_ID = "fx:id";
+    private static final String FX_CONTROLLER = "fx:controller";
+    private static final String EVENT_HANDLER_PREFIX = "on";
+    private static final String CHANGE_EVENT_HANDLER_SUFFIX = "Change";
+    private static final String CONTROLLER_METHOD_PREFIX = "#";
+    private static final String ESCAPE_PREFIX = "\\";
+    private static final String ID_PROPERTY_ANNOTATION = "com.sun.javafx.beans.IDProperty";
+    private static final String FALLBACK_PACKAGE = "fxml";
+    private static final String FACTORY_SUFFIX = "FxmlFactory";
+    private static final char LIST_DELIMITER = ',';
+
+    private final String resourceName;
+    private final ClassLoader classLoader;
+    private final Path classesDirectory;
+    private final Map<String, Class<?>> importedClasses = new HashMap<>();
+    private final List<String> importedPackages = new ArrayList<>(Arrays.asList("java.lang"));
+    private final StringBuilder body = new StringBuilder();
+    private int nextVariable;
+    private Class<?> controllerType;
+    private String packageName;
+    private String simpleName;
+    private Class<?> rootType;
+    private String root;
+
+    /**
+     * @param resourceName The name of the document, relative to the root of
+     *                     the classpath, such as "screens/Main.fxml".
+     * @param classLoader  The class loader that resolves the classes the
+     *                     document refers to.
+     * @param classesDirectory The directory the factory is compiled into.
+     *                         Package-private members are only used on
+     *                         classes loaded from this directory, since
+     *                         elsewhere they may sit in another runtime
+     *                         package than the factory.
+     */
+    FxmlSourceGenerator(String resourceName, ClassLoader classLoader, Path classesDirectory) {
+        this.resourceName = resourceName;
+        this.classLoader = classLoader;
+        this.classesDirectory = classesDirectory.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Generates the statements that build the document. Call
+     * {@link #getSource()} afterwards for the factory source.
+     *
+     * @param document The contents of the FXML document.
+     * @throws IOException              If the document can't be read.
+     * @throws UnsupportedFxmlException If the document uses anything outside
+     *                                  the supported subset of FXML.
+     */
+    void generate(InputStream document) throws IOException, UnsupportedFxmlException {
+        final XmlElement rootElement = parse(document);
+        final String controllerName = rootElement.getAttribute(FX_CONTROLLER);
+        if (controllerName != null) {
+            controllerType = loadClass(controllerName);
+            if (!isPublic(controllerType) || !hasPublicNoArgConstructor(controllerType)) {
+                throw new UnsupportedFxmlException("The controller " + controllerName + " can't be constructed.");
+            }
+            packageName = isLocal(controllerType) ? getPackageName(controllerType) : getResourcePackage();
+            body.append("            final ").append(typeName(controllerType)).append(" controller = new ")
+                    .append(typeName(controllerType)).append("();\n");
+        } else {
+            packageName = getResourcePackage();
+        }
+        simpleName = getSimpleName();
+        rootType = resolveElementType(rootElement.name);
+        if (!Node.class.isAssignableFrom(rootType)) {
+            throw new UnsupportedFxmlException("The root element is not a Node.");
+        }
+        root = processInstance(rootElement, rootType);
+        if (controllerType != null) {
+            initializeController();
+        }
+    }
+
+    /**
+     * @return The package of the generated factory. Only valid after
+     *         {@link #generate(InputStream)} returned.
+     */
+    String getPackageName() {
+        return packageName;
+    }
+
+    /**
+     * @return The simple name of the generated factory. Only valid after
+     *         {@link #generate(InputStream)} returned.
+     */
+    String getSimpleName() {
+        if (simpleName != null) {
+            return simpleName;
+        }
+        final String fileName = resourceName.substring(resourceName.lastIndexOf('/') + 1);
+        final String baseName = fileName.endsWith(".fxml") ? fileName.substring(0, fileName.length() - 5) : fileName;
+        final StringBuilder name = new StringBuilder();
+        for (char c : baseName.toCharArray()) {
+            name.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        if (name.length() == 0 || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            name.insert(0, '_');
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.append(FACTORY_SUFFIX).toString();
+    }
+
+    /**
+     * Changes the simple name of the generated factory, for instance because
+     * another document generated a factory of the same name.
+     *
+     * @param simpleName The new simple name.
+     */
+    void setSimpleName(String simpleName) {
+        this.simpleName = simpleName;
+    }
+
+    private String getResourcePackage() {
+        final int slash = resourceName.lastIndexOf('/');
+        final String directory = slash < 0 ? "" : resourceName.substring(0, slash).replace('/', '.');
+        return SourceVersion.isName(directory) ? directory : FALLBACK_PACKAGE;
+    }
+
+    private XmlElement parse(InputStream document) throws IOException, UnsupportedFxmlException {
+        final XMLInputFactory inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        try {
+            final XMLStreamReader reader = inputFactory.createXMLStreamReader(document);
+            try {
+                XmlElement current = null;
+                XmlElement root = null;
+                while (reader.hasNext()) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                            if (current != null || !"import".equals(reader.getPITarget())) {
+                                throw new UnsupportedFxmlException("Processing instruction <?" + reader.getPITarget() + "?>.");
+                            }
+                            importName(reader.getPIData().trim());
+                            break;
+                        case XMLStreamConstants.START_ELEMENT:
+                            final XmlElement element = new XmlElement(current, qualifiedName(reader.getPrefix(), reader.getLocalName()));
+                            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                                element.attributes.put(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                                        reader.getAttributeValue(i));
+                            }
+                            if (current == null) {
+                                root = element;
+                            } else {
+                                current.children.add(element);
+                            }
+                            current = element;
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            current = current.parent;
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.CDATA:
+                            if (current != null && !reader.isWhiteSpace() && !reader.getText().trim().isEmpty()) {
+                                throw new UnsupportedFxmlException("Text content in <" + current.name + ">.");
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                if (root == null) {
+                    throw new UnsupportedFxmlException("The document is empty.");
+                }
+                return root;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException ex) {
+            throw new UnsupportedFxmlException("The document can't be parsed: " + ex.getMessage());
+        }
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    private void importName(String name) throws UnsupportedFxmlException {
+        if (name.endsWith(".*")) {
+            importedPackages.add(name.substring(0, name.length() - 2));
+        } else {
+            final Class<?> type = loadClass(name);
+            importedClasses.put(type.getSimpleName(), type);
+        }
+    }
+
+    private Class<?> loadClass(String name) throws UnsupportedFxmlException {
+        String binaryName = name;
+        while (true) {
+            try {
+                return Class.forName(binaryName, false, classLoader);
+            } catch (ClassNotFoundException | LinkageError ex) {
+                final int dot = binaryName.lastIndexOf('.');
+                if (dot < 0) {
+                    throw new UnsupportedFxmlException("Unknown class " + name + ".");
+                }
+                binaryName = binaryName.substring(0, dot) + "$" + binaryName.substring(dot + 1);
+            }
+        }
+    }
+
+    private Class<?> getType(String name) throws UnsupportedFxmlException {
+        final Class<?> imported = importedClasses.get(name);
+        if (imported != null) {
+            return imported;
+        }
+        for (String importedPackage : importedPackages) {
+            try {
+                return Class.forName(importedPackage + "." + name, false, classLoader);
+            } catch (ClassNotFoundException | LinkageError ex) {
+                //Not in this package.
+            }
+        }
+        throw new UnsupportedFxmlException("Class " + name + " isn't imported.");
+    }
+
+    private Class<?> resolveElementType(String name) throws UnsupportedFxmlException {
+        if (name.startsWith(FX_PREFIX + ":")) {
+            throw new UnsupportedFxmlException("Element <" + name + ">.");
+        }
+        if (Character.isLowerCase(name.charAt(0)) && name.indexOf('.') >= 0) {
+            return loadClass(name);
+        }
+        if (Character.isUpperCase(name.charAt(0)) && name.indexOf('.') < 0) {
+            return getType(name);
+        }
+        throw new UnsupportedFxmlException("Element <" + name + "> is not an instance declaration.");
+    }
+
+    private static boolean isPropertyElement(String name) {
+        return Character.isLowerCase(name.charAt(0)) && name.indexOf('.') < 0 && name.indexOf(':') < 0;
+    }
+
+    private String processInstance(XmlElement element, Class<?> type) throws UnsupportedFxmlException {
+        if (!isAccessible(type)) {
+            throw new UnsupportedFxmlException("Class " + type.getName() + " is not accessible.");
+        }
+        final String variable = "n" + nextVariable++;
+        final List<Map.Entry<String, String>> properties = new ArrayList<>();
+        final List<Map.Entry<String, String>> eventHandlers = new ArrayList<>();
+        final List<Map.Entry<String, String>> staticProperties = new ArrayList<>();
+        for (Map.Entry<String, String> attribute : element.attributes.entrySet()) {
+            final String name = attribute.getKey();
+            if (name.equals(FX_ID) || name.equals(FX_CONTROLLER) && element.parent == null) {
+                continue;
+            }
+            if (name.indexOf(':') >= 0) {
+                throw new UnsupportedFxmlException("Attribute " + name + ".");
+            } else if (name.startsWith(EVENT_HANDLER_PREFIX)) {
+                eventHandlers.add(attribute);
+            } else if (name.indexOf('.') >= 0) {
+                staticProperties.add(attribute);
+            } else {
+                properties.add(attribute);
+            }
+        }
+        final String fxId = element.getAttribute(FX_ID);
+        if (hasPublicNoArgConstructor(type)) {
+            line("final " + typeName(type) + " " + variable + " = new " + typeName(type) + "();");
+            processFxId(variable, type, fxId);
+            processChildren(variable, type, element);
+            for (Map.Entry<String, String> property : properties) {
+                processProperty(variable, type, property.getKey(), property.getValue());
+            }
+        } else {
+            if (!element.children.isEmpty()) {
+                throw new UnsupportedFxmlException("Child elements of " + type.getName() + ", which is built from constructor arguments.");
+            }
+            line("final " + typeName(type) + " " + variable + " = new " + typeName(type) + "(" + constructorArguments(type, properties) + ");");
+            processFxId(variable, type, fxId);
+        }
+        for (Map.Entry<String, String> eventHandler : eventHandlers) {
+            processEventHandler(variable, type, eventHandler.getKey(), eventHandler.getValue());
+        }
+        for (Map.Entry<String, String> staticProperty : staticProperties) {
+            processStaticProperty(variable, type, staticProperty.getKey(), staticProperty.getValue());
+        }
+        return variable;
+    }
+
+    private String constructorArguments(Class<?> type, List<Map.Entry<String, String>> properties) throws UnsupportedFxmlException {
+        final Map<String, String> values = new HashMap<>();
+        for (Map.Entry<String, String> property : properties) {
+            values.put(property.getKey(), property.getValue());
+        }
+        Constructor<?> match = null;
+        for (Constructor<?> constructor : type.getConstructors()) {
+            final Annotation[][] annotations = constructor.getParameterAnnotations();
+            final List<String> names = new ArrayList<>();
+            for (Annotation[] parameterAnnotations : annotations) {
+                for (Annotation annotation : parameterAnnotations) {
+                    if (annotation instanceof NamedArg) {
+                        names.add(((NamedArg) annotation).value());
+                    }
+                }
+            }
+            if (names.size() == annotations.length && names.size() == values.size() && values.keySet().containsAll(names)) {
+                if (match != null) {
+                    throw new UnsupportedFxmlException("Ambiguous constructor arguments for " + type.getName() + ".");
+                }
+                match = constructor;
+            }
+        }
+        if (match == null) {
+            throw new UnsupportedFxmlException("No constructor of " + type.getName() + " takes exactly " + values.keySet() + ".");
+        }
+        final StringBuilder arguments = new StringBuilder();
+        final Class<?>[] parameterTypes = match.getParameterTypes();
+        final Annotation[][] annotations = match.getParameterAnnotations();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof NamedArg) {
+                    arguments.append(arguments.length() == 0 ? "" : ", ").append(literal(parameterTypes[i], values.get(((NamedArg) annotation).value())));
+                }
+            }
+        }
+        return arguments.toString();
+    }
+
+    private void processFxId(String variable, Class<?> type, String fxId) throws UnsupportedFxmlException {
+        if (fxId == null) {
+            return;
+        }
+        final String idProperty = getIdProperty(type);
+        if (idProperty != null) {
+            line(variable + "." + getSetter(type, idProperty).getName() + "(" + stringLiteral(fxId) + ");");
+        }
+        if (controllerType != null) {
+            final Field field = getControllerField(fxId);
+            if (field != null) {
+                if (!field.getType().isAssignableFrom(type)) {
+                    throw new UnsupportedFxmlException("Field " + fxId + " can't hold a " + type.getName() + ".");
+                }
+                line("controller." + fxId + " = " + variable + ";");
+            }
+        }
+    }
+
+    private String getIdProperty(Class<?> type) throws UnsupportedFxmlException {
+        for (Annotation annotation : type.getAnnotations()) {
+            if (annotation.annotationType().getName().equals(ID_PROPERTY_ANNOTATION)) {
+                try {
+                    return (String) annotation.annotationType().getMethod("value").invoke(annotation);
+                } catch (ReflectiveOperationException | RuntimeException ex) {
+                    throw new UnsupportedFxmlException("The id property of " + type.getName() + " can't be read.");
+                }
+            }
+        }
+        return null;
+    }
+
+    private void processChildren(String variable, Class<?> type, XmlElement element) throws UnsupportedFxmlException {
+        for (XmlElement child : element.children) {
+            if (isPropertyElement(child.name)) {
+                processPropertyElement(variable, type, child);
+            } else {
+                final DefaultProperty defaultProperty = type.getAnnotation(DefaultProperty.class);
+                if (defaultProperty == null) {
+                    throw new UnsupportedFxmlException(type.getName() + " has no default property.");
+                }
+                final Class<?> childType = resolveElementType(child.name);
+                addOrSet(variable, type, defaultProperty.value(), processInstance(child, childType), childType, true);
+            }
+        }
+    }
+
+    private void processPropertyElement(String variable, Class<?> type, XmlElement element) throws UnsupportedFxmlException {
+        if (!element.attributes.isEmpty()) {
+            throw new UnsupportedFxmlException("Attributes on property element <" + element.name + ">.");
+        }
+        final Method getter = getGetter(type, element.name);
+        final boolean list = List.class.isAssignableFrom(getter.getReturnType()) && findSetter(type, element.name) == null;
+        if (!list && element.children.size() != 1) {
+            throw new UnsupportedFxmlException("Property element <" + element.name + "> must hold a single element.");
+        }
+        for (XmlElement child : element.children) {
+            if (isPropertyElement(child.name)) {
+                throw new UnsupportedFxmlException("Property element <" + child.name + "> inside <" + element.name + ">.");
+            }
+            final Class<?> childType = resolveElementType(child.name);
+            addOrSet(variable, type, element.name, processInstance(child, childType), childType, list);
+        }
+    }
+
+    private void addOrSet(String variable, Class<?> type, String property, String value, Class<?> valueType, boolean allowList) throws UnsupportedFxmlException {
+        final Method getter = getGetter(type, property);
+        if (allowList && List.class.isAssignableFrom(getter.getReturnType())) {
+            line(variable + "." + getter.getName() + "().add(" + value + ");");
+            return;
+        }
+        final Method setter = getSetter(type, property);
+        if (!setter.getParameterTypes()[0].isAssignableFrom(valueType)) {
+            throw new UnsupportedFxmlException("Property " + property + " can't hold a " + valueType.getName() + ".");
+        }
+        line(variable + "." + setter.getName() + "(" + value + ");");
+    }
+
+    private void processProperty(String variable, Class<?> type, String property, String value) throws UnsupportedFxmlException {
+        final Method getter = getGetter(type, property);
+        final Method setter = findSetter(type, property);
+        if (setter != null) {
+            line(variable + "." + setter.getName() + "(" + literal(setter.getParameterTypes()[0], value) + ");");
+        } else if (List.class.isAssignableFrom(getter.getReturnType())) {
+            final Class<?> itemType = getListItemType(getter.getGenericReturnType());
+            int start = 0;
+            while (start <= value.length()) {
+                int end = value.indexOf(LIST_DELIMITER, start);
+                end = end < 0 ? value.length() : end;
+                final String item = value.substring(start, end).trim();
+                if (!item.isEmpty()) {
+                    line(variable + "." + getter.getName() + "().add(" + literal(itemType, item) + ");");
+                }
+                start = end + 1;
+            }
+        } else {
+            throw new UnsupportedFxmlException("Property " + property + " of " + type.getName() + " is read-only.");
+        }
+    }
+
+    private static Class<?> getListItemType(Type listType) {
+        if (listType instanceof ParameterizedType) {
+            final Type itemType = ((ParameterizedType) listType).getActualTypeArguments()[0];
+            if (itemType instanceof Class) {
+                return (Class<?>) itemType;
+            }
+        }
+        return Object.class;
+    }
+
+    private void processEventHandler(String variable, Class<?> type, String name, String value) throws UnsupportedFxmlException {
+        if (name.endsWith(CHANGE_EVENT_HANDLER_SUFFIX)) {
+            throw new UnsupportedFxmlException("Change handler " + name + ".");
+        }
+        if (!value.startsWith(CONTROLLER_METHOD_PREFIX) || !SourceVersion.isIdentifier(value.substring(1))) {
+            throw new UnsupportedFxmlException("Event handler " + name + "=\"" + value + "\" is not a controller method.");
+        }
+        if (controllerType == null) {
+            throw new UnsupportedFxmlException("Event handler " + name + " without a controller.");
+        }
+        final Method setter = getSetter(type, name);
+        if (!EventHandler.class.isAssignableFrom(setter.getParameterTypes()[0])) {
+            throw new UnsupportedFxmlException("Property " + name + " is not an event handler.");
+        }
+        final String methodName = value.substring(1);
+        final Method handler = getControllerMethod(methodName, true);
+        if (handler != null) {
+            line(variable + "." + setter.getName() + "((event) -> controller." + methodName + "(event));");
+        } else if (getControllerMethod(methodName, false) != null) {
+            line(variable + "." + setter.getName() + "((event) -> controller." + methodName + "());");
+        } else {
+            throw new UnsupportedFxmlException("The controller has no event handler " + methodName + ".");
+        }
+    }
+
+    private void processStaticProperty(String variable, Class<?> type, String name, String value) throws UnsupportedFxmlException {
+        final int dot = name.lastIndexOf('.');
+        final Class<?> sourceType = getType(name.substring(0, dot));
+        final String property = capitalize(name.substring(dot + 1));
+        Method getter = null;
+        for (Method method : sourceType.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) && method.getParameterCount() == 1
+                    && (method.getName().equals("get" + property) || method.getName().equals("is" + property))
+                    && method.getParameterTypes()[0].isAssignableFrom(type)) {
+                if (getter != null) {
+                    throw new UnsupportedFxmlException("Ambiguous static property " + name + ".");
+                }
+                getter = method;
+            }
+        }
+        if (getter == null || !isAccessible(sourceType)) {
+            throw new UnsupportedFxmlException("Unknown static property " + name + ".");
+        }
+        try {
+            final Method setter = sourceType.getMethod("set" + property, getter.getParameterTypes()[0], getter.getReturnType());
+            if (!Modifier.isStatic(setter.getModifiers())) {
+                throw new UnsupportedFxmlException("Static property " + name + " is read-only.");
+            }
+            line(typeName(sourceType) + "." + setter.getName() + "(" + variable + ", " + literal(getter.getReturnType(), value) + ");");
+        } catch (NoSuchMethodException ex) {
+            throw new UnsupportedFxmlException("Static property " + name + " is read-only.");
+        }
+    }
+
+    private void initializeController() throws UnsupportedFxmlException {
+        if (Initializable.class.isAssignableFrom(controllerType)) {
+            line("controller.initialize(location, null);");
+            return;
+        }
+        final Field location = getControllerField("location");
+        if (location != null) {
+            if (!location.getType().isAssignableFrom(URL.class)) {
+                throw new UnsupportedFxmlException("Field location can't hold a URL.");
+            }
+            line("controller.location = location;");
+        }
+        final Field resources = getControllerField("resources");
+        if (resources != null) {
+            if (resources.getType().isPrimitive()) {
+                throw new UnsupportedFxmlException("Field resources can't hold a ResourceBundle.");
+            }
+            line("controller.resources = null;");
+        }
+        if (getControllerMethod("initialize", false) != null) {
+            line("controller.initialize();");
+        }
+    }
+
+    /**
+     * Finds the field FXMLLoader would inject a value into, which is any
+     * non-static field that is public or annotated with FXML. Only fields
+     * that can be assigned directly from the generated factory are supported.
+     */
+    private Field getControllerField(String name) throws UnsupportedFxmlException {
+        final List<Field> injected = new ArrayList<>();
+        Field first = null;
+        for (Class<?> type = controllerType; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!field.getName().equals(name)) {
+                    continue;
+                }
+                first = first == null ? field : first;
+                if (!Modifier.isStatic(field.getModifiers()) && (Modifier.isPublic(field.getModifiers()) || field.isAnnotationPresent(FXML.class))) {
+                    injected.add(field);
+                }
+            }
+        }
+        if (injected.isEmpty()) {
+            return null;
+        }
+        final Field field = injected.get(0);
+        if (injected.size() > 1 || field != first || !isAccessible(field) || Modifier.isFinal(field.getModifiers())) {
+            throw new UnsupportedFxmlException("Field " + name + " of the controller is not accessible.");
+        }
+        return field;
+    }
+
+    /**
+     * Finds a method FXMLLoader would call, which is any non-static method
+     * that is public or annotated with FXML, and that either takes an Event or
+     * takes no arguments.
+     */
+    private Method getControllerMethod(String name, boolean takesEvent) throws UnsupportedFxmlException {
+        for (Class<?> type = controllerType; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                final boolean matches = method.getName().equals(name)
+                        && !Modifier.isStatic(method.getModifiers())
+                        && !method.isBridge()
+                        && (Modifier.isPublic(method.getModifiers()) || method.isAnnotationPresent(FXML.class))
+                        && (takesEvent
+                                ? method.getParameterCount() == 1 && Event.class.isAssignableFrom(method.getParameterTypes()[0])
+                                : method.getParameterCount() == 0);
+                if (matches) {
+                    if (!isAccessible(method)) {
+                        throw new UnsupportedFxmlException("Method " + name + " of the controller is not accessible.");
+                    }
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Method getGetter(Class<?> type, String property) throws UnsupportedFxmlException {
+        for (String prefix : new String[]{"get", "is"}) {
+            try {
+                final Method getter = type.getMethod(prefix + capitalize(property));
+                if (!Modifier.isStatic(getter.getModifiers())) {
+                    return getter;
+                }
+            } catch (NoSuchMethodException ex) {
+                //Try the next prefix.
+            }
+        }
+        throw new UnsupportedFxmlException("Unknown property " + property + " of " + type.getName() + ".");
+    }
+
+    private Method findSetter(Class<?> type, String property) throws UnsupportedFxmlException {
+        try {
+            final Method setter = type.getMethod("set" + capitalize(property), getGetter(type, property).getReturnType());
+            return Modifier.isStatic(setter.getModifiers()) ? null : setter;
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    private Method getSetter(Class<?> type, String property) throws UnsupportedFxmlException {
+        final Method setter = findSetter(type, property);
+        if (setter == null) {
+            throw new UnsupportedFxmlException("Property " + property + " of " + type.getName() + " is read-only.");
+        }
+        return setter;
+    }
+
+    /**
+     * Coerces an attribute value to a Java expression of the given type, the
+     * way FXMLLoader coerces it at runtime.
+     */
+    private String literal(Class<?> type, String attributeValue) throws UnsupportedFxmlException {
+        final String value = resolvePrefixedValue(attributeValue);
+        try {
+            if (type.isAssignableFrom(String.class)) {
+                return stringLiteral(value);
+            } else if (type == Boolean.class || type == Boolean.TYPE) {
+                return Boolean.toString(Boolean.valueOf(value));
+            } else if (type == Character.class || type == Character.TYPE) {
+                if (value.isEmpty()) {
+                    throw new UnsupportedFxmlException("Empty character.");
+                }
+                return String.format("'\\u%04x'", (int) value.charAt(0));
+            } else if (type == Byte.class || type == Byte.TYPE) {
+                return "(byte) " + Byte.valueOf(value);
+            } else if (type == Short.class || type == Short.TYPE) {
+                return "(short) " + Short.valueOf(value);
+            } else if (type == Integer.class || type == Integer.TYPE) {
+                return Integer.toString(Integer.valueOf(value));
+            } else if (type == Long.class || type == Long.TYPE) {
+                return Long.valueOf(value) + "L";
+            } else if (type == Float.class || type == Float.TYPE) {
+                return floatLiteral(Float.valueOf(value));
+            } else if (type == Double.class || type == Double.TYPE) {
+                return doubleLiteral(Double.valueOf(value));
+            } else if (type.isEnum()) {
+                return enumLiteral(type, value);
+            }
+        } catch (NumberFormatException ex) {
+            throw new UnsupportedFxmlException("Can't coerce " + value + " to " + type.getName() + ".");
+        }
+        try {
+            final Method valueOf = type.getDeclaredMethod("valueOf", String.class);
+            if (Modifier.isStatic(valueOf.getModifiers()) && isAccessible(valueOf) && isAccessible(type)
+                    && type.isAssignableFrom(valueOf.getReturnType())) {
+                return typeName(type) + ".valueOf(" + stringLiteral(value) + ")";
+            }
+        } catch (NoSuchMethodException ex) {
+            //Can't be coerced.
+        }
+        throw new UnsupportedFxmlException("Can't coerce " + value + " to " + type.getName() + ".");
+    }
+
+    private static String resolvePrefixedValue(String value) throws UnsupportedFxmlException {
+        if (value.startsWith(ESCAPE_PREFIX)) {
+            final String escaped = value.substring(1);
+            if (escaped.isEmpty() || "\\@%$".indexOf(escaped.charAt(0)) < 0) {
+                throw new UnsupportedFxmlException("Invalid escape sequence " + value + ".");
+            }
+            return escaped;
+        }
+        if (!value.isEmpty() && "@%$".indexOf(value.charAt(0)) >= 0) {
+            throw new UnsupportedFxmlException("Attribute value " + value + " needs resolving.");
+        }
+        return value;
+    }
+
+    private String enumLiteral(Class<?> type, String value) throws UnsupportedFxmlException {
+        final String constant = !value.isEmpty() && Character.isLowerCase(value.charAt(0)) ? toAllCaps(value) : value;
+        try {
+            if (isAccessible(type) && type.getField(constant).isEnumConstant()) {
+                return typeName(type) + "." + constant;
+            }
+        } catch (NoSuchFieldException ex) {
+            //Not a constant.
+        }
+        throw new UnsupportedFxmlException("Unknown constant " + value + " of " + type.getName() + ".");
+    }
+
+    private static String toAllCaps(String value) {
+        final StringBuilder allCaps = new StringBuilder();
+        for (char c : value.toCharArray()) {
+            if (Character.isUpperCase(c)) {
+                allCaps.append('_');
+            }
+            allCaps.append(Character.toUpperCase(c));
+        }
+        return allCaps.toString();
+    }
+
+    private static String floatLiteral(float value) {
+        if (Float.isNaN(value)) {
+            return "Float.NaN";
+        } else if (Float.isInfinite(value)) {
+            return value > 0 ? "Float.POSITIVE_INFINITY" : "Float.NEGATIVE_INFINITY";
+        }
+        return Float.toString(value) + "f";
+    }
+
+    private static String doubleLiteral(double value) {
+        if (Double.isNaN(value)) {
+            return "Double.NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        }
+        return Double.toString(value);
+    }
+
+    static String stringLiteral(String value) {
+        final StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c >= 0x20 && c < 0x7F) {
+                literal.append(c);
+            } else {
+                literal.append(String.format("\\u%04x", (int) c));
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private static String capitalize(String name) {
+        return name.substring(0, 1).toUpperCase(Locale.ROOT) + name.substring(1);
+    }
+
+    private static boolean hasPublicNoArgConstructor(Class<?> type) {
+        try {
+            return !Modifier.isAbstract(type.getModifiers()) && Modifier.isPublic(type.getConstructor().getModifiers());
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isPublic(Class<?> type) {
+        for (Class<?> enclosing = type; enclosing != null; enclosing = enclosing.getEnclosingClass()) {
+            if (!Modifier.isPublic(enclosing.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isAccessible(Class<?> type) {
+        if (type.isArray() || type.isPrimitive() || type.getCanonicalName() == null) {
+            return false;
+        }
+        for (Class<?> enclosing = type; enclosing != null; enclosing = enclosing.getEnclosingClass()) {
+            if (Modifier.isPrivate(enclosing.getModifiers())
+                    || !Modifier.isPublic(enclosing.getModifiers()) && !isSamePackage(enclosing)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isAccessible(Member member) {
+        final int modifiers = member.getModifiers();
+        return Modifier.isPublic(modifiers)
+                || !Modifier.isPrivate(modifiers) && isSamePackage(member.getDeclaringClass());
+    }
+
+    private boolean isSamePackage(Class<?> type) {
+        return getPackageName(type).equals(packageName) && isLocal(type);
+    }
+
+    private boolean isLocal(Class<?> type) {
+        final CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null) {
+            return false;
+        }
+        try {
+            return Paths.get(codeSource.getLocation().toURI()).toAbsolutePath().normalize().equals(classesDirectory);
+        } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException ex) {
+            return false;
+        }
+    }
+
+    private static String getPackageName(Class<?> type) {
+        final String name = type.getName();
+        final int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(0, dot);
+    }
+
+    private static String typeName(Class<?> type) {
+        return type.getCanonicalName();
+    }
+
+    private void line(String statement) {
+        body.append("            ").append(statement).append('\n');
+    }
+
+    /**
+     * @return The Java source of the factory. Only valid after
+     *         {@link #generate(InputStream)} returned.
+     */
+    String getSource() {
+        final String controllerName = controllerType == null ? "Object" : typeName(controllerType);
+        final String loadedNode = "io.boschman.fxstager.loading.LoadedNode<" + typeName(rootType) + ", " + controllerName + ">";
+        final StringBuilder source = new StringBuilder();
+        source.append("package ").append(packageName).append(";\n\n");
+        source.append("/**\n * Generated by FxmlCompiler from ").append(resourceName).append(". Do not edit.\n */\n");
+        source.append("public final class ").append(simpleName)
+                .append(" implements io.boschman.fxstager.loading.FxmlFactory<").append(typeName(rootType)).append(", ").append(controllerName).append("> {\n\n");
+        source.append("    @Override\n    public String getResourceName() {\n        return ").append(stringLiteral(resourceName)).append(";\n    }\n\n");
+        source.append("    @Override\n    @SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append("    public ").append(loadedNode).append(" create(java.net.URL location) {\n");
+        source.append("        try {\n");
+        if (controllerType == null) {
+            source.append("            final Object controller = null;\n");
+        }
+        source.append(body);
+        source.append("            return new io.boschman.fxstager.loading.LoadedNode<>(").append(root).append(", controller);\n");
+        source.append("        } catch (RuntimeException ex) {\n");
+        source.append("            throw new io.boschman.fxstager.loading.ScreenLoaderException(\"An error occurred loading the screen: \" + location, ex);\n");
+        source.append("        }\n    }\n\n}\n");
+        return source.toString();
+    }
+
+    /**
+     * An element of the document, with its attributes in document order.
+     */
+    private static final class XmlElement {
+
+        private final XmlElement parent;
+        private final String name;
+        private final Map<String, String> attributes = new LinkedHashMap<>();
+        private final List<XmlElement> children = new ArrayList<>();
+
+        XmlElement(XmlElement parent, String name) {
+            this.parent = parent;
+            this.name = name;
+        }
+
+        String getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+    }
+
+    /**
+     * Thrown when a document uses FXML that the generator doesn't support.
+     */
+    static final class UnsupportedFxmlException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedFxmlException(String message) {
+            super(message);
+        }
+
+    }
+
+}
@@ -17,20 +17,59 @@
  */
 package io.boschman.fxstager.loading;
 
+import io.boschman.fxstager.metrics.StagerMetrics;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 
 /**
- * A static utility class that can be used to load FXML resources.
+ * A static utility class that can be used to load FXML resources. The
+ * contents of recently loaded FXML documents are cached, so that loading the
+ * same URL repeatedly does not re-read it. Call
+ * {@link #invalidateTemplate(URL)} when a document changes at runtime. Note
+ * that only the I/O is skipped: the cached bytes are still XML-parsed, and
+ * their classes and properties resolved, by FXMLLoader on every load.
+ * <p>
+ * If an {@link FxmlFactory} is available for a URL, it is used instead of
+ * FXMLLoader. A factory is available if it was registered, discovered as a
+ * service, or linked by an added {@link FxmlPack} to the document that stands
+ * in for the URL. Otherwise, if an added pack contains a document for the
+ * URL, that document is read from the pack instead of from the URL. A
+ * document can also be loaded from a pack directly, by its key, with
+ * {@link #load(FxmlPack, String)}.
  *
  * @author Arjan Boschman
  */
 public final class Loader {
 
+    /**
+     * The default maximum number of FXML documents kept in the template cache.
+     */
+    public static final int DEFAULT_TEMPLATE_CACHE_SIZE = 64;
+
+    private static final TemplateCache TEMPLATE_CACHE = new TemplateCache(DEFAULT_TEMPLATE_CACHE_SIZE);
+    private static final Map<String, FxmlFactory<?, ?>> REGISTERED_FACTORIES = new ConcurrentHashMap<>();
+    private static volatile Map<String, FxmlFactory<?, ?>> discoveredFactories;
+    private static volatile StagerMetrics metrics = StagerMetrics.NONE;
+    private static final List<FxmlPack> PACKS = new CopyOnWriteArrayList<>();
+
     /**
      * Loads an FXML resource with accompanying controller.
      *
@@ -55,16 +94,205 @@ public final class Loader {
      * @throws ScreenLoaderException If an error occurs loading the screen.
      */
     public static <N extends Node, C> LoadedNode<N, C> load(URL url) throws ScreenLoaderException {
+        final long start = System.nanoTime();
+        final FxmlFactory<N, C> factory = findFactory(url);
+        if (factory != null) {
+            return create(factory, url, start);
+        }
         try {
-            final FXMLLoader loader = new FXMLLoader(url);
-            final N node = loader.<N>load();
-            final C controller = loader.<C>getController();
-            return new LoadedNode<>(node, controller);
+            return parse(url, openTemplate(url), start);
         } catch (IOException ex) {
             throw new ScreenLoaderException("An error occurred loading the screen: " + url, ex);
         }
     }
 
+    /**
+     * Loads an FXML document from a pack, whether or not the pack has been
+     * added with {@link #addPack(FxmlPack)}. The document is located at its
+     * key resolved against the base of the pack, which is what relative
+     * references in the document are resolved against, and what a factory
+     * has to be registered for to be used instead. Otherwise, the factory the
+     * pack links the document to is used, if any.
+     *
+     * @param <N>  The type of Node being loaded.
+     * @param <C>  The type of the controller that belongs to this FXML
+     *             resource.
+     * @param pack The pack.
+     * @param key  The key of the document in the pack.
+     * @return A LoadedNode that wraps both the node and the controller.
+     * @throws ScreenLoaderException If the pack doesn't contain the key, or
+     *                               if an error occurs loading the screen.
+     */
+    public static <N extends Node, C> LoadedNode<N, C> load(FxmlPack pack, String key) throws ScreenLoaderException {
+        final long start = System.nanoTime();
+        final URL url;
+        try {
+            url = new URL(pack.getBase(), key);
+        } catch (MalformedURLException ex) {
+            throw new ScreenLoaderException("An error occurred converting key to URL: " + key, ex);
+        }
+        FxmlFactory<N, C> factory = findFactory(url);
+        if (factory == null) {
+            factory = cast(pack.getFactory(key));
+        }
+        if (factory != null) {
+            return create(factory, url, start);
+        }
+        final InputStream document = pack.openStream(key);
+        if (document == null) {
+            throw new ScreenLoaderException("The pack doesn't contain the screen: " + key);
+        }
+        try {
+            return parse(url, document, start);
+        } catch (IOException ex) {
+            throw new ScreenLoaderException("An error occurred loading the screen: " + url, ex);
+        }
+    }
+
+    private static <N extends Node, C> LoadedNode<N, C> create(FxmlFactory<N, C> factory, URL url, long start) {
+        final StagerMetrics loadMetrics = metrics;
+        final LoadedNode<N, C> loadedNode = factory.create(url);
+        //Nothing is read, and the controller is constructed as part of create.
+        loadMetrics.recordLoad(url, 0, System.nanoTime() - start, 0);
+        return loadedNode;
+    }
+
+    private static <N extends Node, C> LoadedNode<N, C> parse(URL url, InputStream template, long start) throws IOException {
+        final StagerMetrics loadMetrics = metrics;
+        final FXMLLoader loader = new FXMLLoader(url);
+        final long read = System.nanoTime();
+        //Always installed, so that recording metrics doesn't change how documents load.
+        final TimedControllerFactory controllerFactory = new TimedControllerFactory();
+        loader.setControllerFactory(controllerFactory);
+        final N node = loader.<N>load(template);
+        final C controller = loader.<C>getController();
+        final long controllerNanos = controllerFactory.getNanos();
+        loadMetrics.recordLoad(url, read - start, System.nanoTime() - read - controllerNanos, controllerNanos);
+        return new LoadedNode<>(node, controller);
+    }
+
+    private static InputStream openTemplate(URL url) throws IOException {
+        for (FxmlPack pack : PACKS) {
+            final InputStream document = pack.openStream(url);
+            if (document != null) {
+                return document;
+            }
+        }
+        return new ByteArrayInputStream(TEMPLATE_CACHE.get(url));
+    }
+
+    /**
+     * Adds a pack of FXML documents. Loading any URL for which the pack
+     * contains a document reads that document from the pack. Packs added
+     * earlier take precedence.
+     *
+     * @param pack The pack.
+     */
+    public static void addPack(FxmlPack pack) {
+        PACKS.add(pack);
+    }
+
+    /**
+     * Removes a pack added with {@link #addPack(FxmlPack)}.
+     *
+     * @param pack The pack.
+     */
+    public static void removePack(FxmlPack pack) {
+        PACKS.remove(pack);
+    }
+
+    /**
+     * Sets the metrics that receive the timings of every load.
+     *
+     * @param metrics The metrics, or null to stop recording.
+     */
+    public static void setMetrics(StagerMetrics metrics) {
+        Loader.metrics = metrics == null ? StagerMetrics.NONE : metrics;
+    }
+
+    /**
+     * Registers a factory that is to be used instead of FXMLLoader whenever
+     * the given URL is loaded.
+     *
+     * @param url     The URL of the FXML document the factory replaces.
+     * @param factory The factory.
+     */
+    public static void registerFactory(URL url, FxmlFactory<?, ?> factory) {
+        REGISTERED_FACTORIES.put(url.toExternalForm(), factory);
+    }
+
+    /**
+     * Removes a factory registered with {@link #registerFactory(URL,
+     * FxmlFactory)}.
+     *
+     * @param url The URL of the FXML document the factory replaces.
+     */
+    public static void unregisterFactory(URL url) {
+        REGISTERED_FACTORIES.remove(url.toExternalForm());
+    }
+
+    private static <N extends Node, C> FxmlFactory<N, C> findFactory(URL url) {
+        final String externalForm = url.toExternalForm();
+        final FxmlFactory<?, ?> registered = REGISTERED_FACTORIES.get(externalForm);
+        if (registered != null) {
+            return cast(registered);
+        }
+        final FxmlFactory<?, ?> discovered = getDiscoveredFactories().get(externalForm);
+        if (discovered != null) {
+            return cast(discovered);
+        }
+        for (FxmlPack pack : PACKS) {
+            final FxmlFactory<?, ?> linked = pack.getFactory(url);
+            if (linked != null) {
+                return cast(linked);
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <N extends Node, C> FxmlFactory<N, C> cast(FxmlFactory<?, ?> factory) {
+        return (FxmlFactory<N, C>) factory;
+    }
+
+    private static Map<String, FxmlFactory<?, ?>> getDiscoveredFactories() {
+        Map<String, FxmlFactory<?, ?>> factories = discoveredFactories;
+        if (factories == null) {
+            synchronized (Loader.class) {
+                factories = discoveredFactories;
+                if (factories == null) {
+                    final List<FxmlFactory<?, ?>> discovered = new ArrayList<>();
+                    for (FxmlFactory<?, ?> factory : ServiceLoader.load(FxmlFactory.class)) {
+                        discovered.add(factory);
+                    }
+                    factories = indexByLocation(discovered);
+                    discoveredFactories = factories;
+                }
+            }
+        }
+        return factories;
+    }
+
+    /**
+     * Keys factories by the URL their class loader resolves their resource
+     * name to, which is the only URL they are used for. Factories whose
+     * document can't be found are left out.
+     *
+     * @param factories The factories.
+     * @return The factories by the external form of their URL.
+     */
+    static Map<String, FxmlFactory<?, ?>> indexByLocation(Iterable<FxmlFactory<?, ?>> factories) {
+        final Map<String, FxmlFactory<?, ?>> byLocation = new HashMap<>();
+        for (FxmlFactory<?, ?> factory : factories) {
+            final ClassLoader classLoader = factory.getClass().getClassLoader();
+            final URL location = classLoader == null ? null : classLoader.getResource(factory.getResourceName());
+            if (location != null) {
+                byLocation.putIfAbsent(location.toExternalForm(), factory);
+            }
+        }
+        return byLocation;
+    }
+
     /**
      * Takes the pathname to some file and converts it to a URL.
      *
@@ -82,6 +310,98 @@ public final class Loader {
         }
     }
 
+    /**
+     * Loads an FXML resource with accompanying controller in the background.
+     * See {@link #loadAsync(URL, Executor)}.
+     *
+     * @param <N>      The type of Node being loaded.
+     * @param <C>      The type of the controller that belongs to this FXML
+     *                 resource.
+     * @param pathname The pathname to the FXML resource.
+     * @param executor The executor that builds the node graph.
+     * @return A future of the LoadedNode, completed on the JavaFX Application
+     *         thread.
+     * @throws ScreenLoaderException If the pathname can't be converted to a
+     *                               URL.
+     */
+    public static <N extends Node, C> CompletableFuture<LoadedNode<N, C>> loadAsync(String pathname, Executor executor) throws ScreenLoaderException {
+        return loadAsync(getUrl(pathname), executor);
+    }
+
+    /**
+     * Loads an FXML resource with accompanying controller in the background.
+     * The node graph is built by the given executor, such as the background
+     * executor of a TaskLauncher, and the returned future is completed on the
+     * JavaFX Application thread, so the node is ready to be attached. The
+     * future fails with a ScreenLoaderException if an error occurs loading.
+     * <p>
+     * Every request builds its own node graph, so concurrent requests for the
+     * same URL never receive the same LoadedNode. They do share the reading of
+     * the document: only one of them reads it, the others wait for that read.
+     * If the executor rejects the work, the returned future fails with the
+     * RejectedExecutionException.
+     *
+     * @param <N>      The type of Node being loaded.
+     * @param <C>      The type of the controller that belongs to this FXML
+     *                 resource.
+     * @param url      The URL where the FXML resource can be found.
+     * @param executor The executor that builds the node graph.
+     * @return A future of the LoadedNode, completed on the JavaFX Application
+     *         thread.
+     */
+    public static <N extends Node, C> CompletableFuture<LoadedNode<N, C>> loadAsync(URL url, Executor executor) {
+        final CompletableFuture<LoadedNode<N, C>> load = new CompletableFuture<>();
+        try {
+            CompletableFuture.<LoadedNode<N, C>>supplyAsync(() -> load(url), executor)
+                    .whenComplete((LoadedNode<N, C> loadedNode, Throwable throwable) -> Platform.runLater(() -> {
+                        if (throwable == null) {
+                            load.complete(loadedNode);
+                        } else {
+                            load.completeExceptionally(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                        }
+                    }));
+        } catch (RejectedExecutionException ex) {
+            load.completeExceptionally(ex);
+        }
+        return load;
+    }
+
+    /**
+     * Sets the maximum number of FXML documents kept in the template cache.
+     * The least recently used documents are dropped when the cache is full.
+     *
+     * @param maximumSize The maximum number of documents. Zero disables the
+     *                    cache.
+     * @throws IllegalArgumentException If maximumSize is negative.
+     */
+    public static void setTemplateCacheSize(int maximumSize) {
+        TEMPLATE_CACHE.setMaximumSize(maximumSize);
+    }
+
+    /**
+     * @return The maximum number of FXML documents kept in the template cache.
+     */
+    public static int getTemplateCacheSize() {
+        return TEMPLATE_CACHE.getMaximumSize();
+    }
+
+    /**
+     * Removes a single FXML document from the template cache, so that it is
+     * read again the next time it is loaded.
+     *
+     * @param url The URL of the FXML document.
+     */
+    public static void invalidateTemplate(URL url) {
+        TEMPLATE_CACHE.invalidate(url);
+    }
+
+    /**
+     * Empties the template cache.
+     */
+    public static void invalidateTemplates() {
+        TEMPLATE_CACHE.invalidateAll();
+    }
+
     private Loader() {
         //Private constructor to make sure no instance is created.
     }
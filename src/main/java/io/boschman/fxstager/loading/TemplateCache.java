@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.loading;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A size bounded, least recently used cache of FXML documents, keyed by URL.
+ * Keeps the raw contents of each document in memory so that repeated loads of
+ * the same URL don't have to go back to the file system. Threads that ask for
+ * a document while another thread is reading it wait for that read instead of
+ * starting their own. Invalidating a document also detaches any read of it
+ * that is in progress: later requests start a new read, and the detached read
+ * is not cached. This class is thread safe.
+ *
+ * @author Arjan Boschman
+ */
+final class TemplateCache {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    //Keyed by the external form, because URL.equals() may resolve host names.
+    private final LinkedHashMap<String, byte[]> templates = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<byte[]>> reads = new HashMap<>();
+    private int maximumSize;
+
+    /**
+     * @param maximumSize The maximum number of documents to keep. Zero
+     *                    disables caching.
+     */
+    TemplateCache(int maximumSize) {
+        setMaximumSize(maximumSize);
+    }
+
+    /**
+     * Gets the contents of the document at the given URL, reading it if it
+     * isn't cached.
+     *
+     * @param url The URL of the FXML document.
+     * @return The contents of the document.
+     * @throws IOException If the document could not be read.
+     */
+    byte[] get(URL url) throws IOException {
+        final String key = url.toExternalForm();
+        final CompletableFuture<byte[]> read;
+        final boolean reading;
+        synchronized (this) {
+            final byte[] template = templates.get(key);
+            if (template != null) {
+                return template;
+            }
+            final CompletableFuture<byte[]> ongoing = reads.get(key);
+            reading = ongoing == null;
+            read = reading ? new CompletableFuture<>() : ongoing;
+            if (reading) {
+                reads.put(key, read);
+            }
+        }
+        if (!reading) {
+            return await(read, url);
+        }
+        final byte[] template;
+        try {
+            template = read(url);
+        } catch (IOException | RuntimeException ex) {
+            synchronized (this) {
+                reads.remove(key, read);
+            }
+            read.completeExceptionally(ex);
+            throw ex;
+        }
+        synchronized (this) {
+            //A read that was invalidated while in progress may be stale.
+            if (reads.remove(key, read) && maximumSize > 0) {
+                templates.put(key, template);
+                trim();
+            }
+        }
+        read.complete(template);
+        return template;
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> read, URL url) throws IOException {
+        try {
+            return read.join();
+        } catch (CompletionException ex) {
+            throw new IOException("Reading the document failed: " + url, ex.getCause());
+        }
+    }
+
+    synchronized void invalidate(URL url) {
+        templates.remove(url.toExternalForm());
+        reads.remove(url.toExternalForm());
+    }
+
+    synchronized void invalidateAll() {
+        templates.clear();
+        reads.clear();
+    }
+
+    synchronized int getMaximumSize() {
+        return maximumSize;
+    }
+
+    synchronized void setMaximumSize(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Maximum size may not be negative: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        trim();
+    }
+
+    synchronized int size() {
+        return templates.size();
+    }
+
+    private void trim() {
+        final Iterator<Map.Entry<String, byte[]>> eldestFirst = templates.entrySet().iterator();
+        while (templates.size() > maximumSize) {
+            eldestFirst.next();
+            eldestFirst.remove();
+        }
+    }
+
+    private static byte[] read(URL url) throws IOException {
+        try (final InputStream inputStream = url.openStream()) {
+            final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                contents.write(buffer, 0, read);
+            }
+            return contents.toByteArray();
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.loading;
+
+import javafx.util.Callback;
+
+/**
+ * A controller factory that constructs controllers the same way FXMLLoader
+ * does by default, and keeps track of the time spent doing so. The Loader
+ * always installs it, so FXMLLoader passes it on to fx:includes and failing
+ * controllers are reported the same way whether or not metrics are recorded.
+ *
+ * @author Arjan Boschman
+ */
+final class TimedControllerFactory implements Callback<Class<?>, Object> {
+
+    private long nanos = 0;
+
+    @Override
+    public Object call(Class<?> type) {
+        final long start = System.nanoTime();
+        try {
+            return type.getConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new ScreenLoaderException("An error occurred constructing the controller: " + type.getName(), ex);
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * @return The total time spent constructing controllers, in nanoseconds.
+     */
+    long getNanos() {
+        return nanos;
+    }
+
+}
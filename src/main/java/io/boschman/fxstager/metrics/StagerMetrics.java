@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.metrics;
+
+import java.net.URL;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Receives timings from the Loader, StagerBuilder and NodeSwapper. Every
+ * method does nothing by default, so implementations only override what they
+ * are interested in. All durations are in nanoseconds. Implementations may be
+ * called from any thread and should return quickly.
+ *
+ * @author Arjan Boschman
+ */
+public interface StagerMetrics {
+
+    /**
+     * Records nothing. Used when no metrics have been configured.
+     */
+    StagerMetrics NONE = new StagerMetrics() {
+    };
+
+    /**
+     * Called after an FXML resource has been loaded. If the resource was
+     * built by an FxmlFactory instead of being parsed, nothing was read, so
+     * ioNanos is 0, and parseNanos is the whole time spent in the factory.
+     * That includes constructing the controller, which isn't timed
+     * separately, so controllerNanos is 0 as well.
+     *
+     * @param url             The URL of the FXML resource.
+     * @param ioNanos         Time spent reading the resource.
+     * @param parseNanos      Time spent parsing the resource and building the
+     *                        node graph, excluding controller construction.
+     * @param controllerNanos Time spent constructing controllers.
+     */
+    default void recordLoad(URL url, long ioNanos, long parseNanos, long controllerNanos) {
+        //Do nothing by default.
+    }
+
+    /**
+     * Called after a StagerBuilder has created a Stager.
+     *
+     * @param loadedScreens The number of screens loaded up front.
+     * @param nanos         Time spent creating the Stager.
+     */
+    default void recordStagerCreated(int loadedScreens, long nanos) {
+        //Do nothing by default.
+    }
+
+    /**
+     * Called after the onLoad callback of a screen's controller has returned.
+     *
+     * @param screenId The id of the screen.
+     * @param nanos    Time spent in onLoad.
+     */
+    default void recordOnLoad(String screenId, long nanos) {
+        //Do nothing by default.
+    }
+
+    /**
+     * Called after the onDisplay callback of a screen's controller has
+     * returned.
+     *
+     * @param screenId The id of the screen.
+     * @param nanos    Time spent in onDisplay.
+     */
+    default void recordOnDisplay(String screenId, long nanos) {
+        //Do nothing by default.
+    }
+
+    /**
+     * Called when a screen switch has completed, meaning that the new screen
+     * has been attached and is fully opaque.
+     *
+     * @param screenId The id of the screen switched to.
+     * @param nanos    Time from the setScreen call until the switch completed.
+     */
+    default void recordScreenSwitch(String screenId, long nanos) {
+        //Do nothing by default.
+    }
+
+    /**
+     * Gets an implementation that emits JDK Flight Recorder events. These
+     * events cost next to nothing unless a recording is running. Flight
+     * Recorder events are only available on Java 11 or newer; on older
+     * runtimes {@link #NONE} is returned.
+     *
+     * @return The Flight Recorder metrics, or NONE.
+     */
+    static StagerMetrics flightRecorder() {
+        try {
+            return (StagerMetrics) Class.forName("io.boschman.fxstager.metrics.FlightRecorderMetrics")
+                    .getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            Logger.getLogger(StagerMetrics.class.getName()).log(Level.INFO,
+                    "Flight Recorder events are not available on this runtime.", ex);
+            return NONE;
+        }
+    }
+
+}
@@ -28,6 +28,11 @@ import javafx.util.Callback;
 
 /**
  * A CellFactory that takes an FXML resource with matching controller.
+ * <p>
+ * By default every call to updateItem loads a fresh node from the FXML
+ * resource. In recycling mode each cell loads its node only once and rebinds
+ * it to whatever item the cell is given next. Controllers that implement
+ * {@link Recyclable} are reset before being bound to the next item.
  *
  * @author Arjan Boschman
  * @param <T> The item type.
@@ -39,20 +44,39 @@ public class FxmlCellFactory<T, N extends Node, C> implements Callback<ListView<
     private final Optional<BiConsumer<T, N>> nodeCallback;
     private final Optional<BiConsumer<T, C>> controllerCallback;
     private final String fxmlResource;
+    private final boolean recycling;
 
     public FxmlCellFactory(String fxmlResource) {
         this(fxmlResource, null, null);
     }
 
     public FxmlCellFactory(String fxmlResource, BiConsumer<T, N> nodeCallback, BiConsumer<T, C> controllerCallback) {
+        this(fxmlResource, nodeCallback, controllerCallback, false);
+    }
+
+    /**
+     * @param fxmlResource       The pathname to the FXML resource.
+     * @param nodeCallback       Called with the item and the node every time
+     *                           a cell is bound to an item. May be null.
+     * @param controllerCallback Called with the item and the controller every
+     *                           time a cell is bound to an item. May be null.
+     * @param recycling          If true, each cell loads the FXML resource
+     *                           only once and reuses the node for every item
+     *                           it is bound to.
+     */
+    public FxmlCellFactory(String fxmlResource, BiConsumer<T, N> nodeCallback, BiConsumer<T, C> controllerCallback, boolean recycling) {
         this.fxmlResource = fxmlResource;
         this.nodeCallback = Optional.ofNullable(nodeCallback);
         this.controllerCallback = Optional.ofNullable(controllerCallback);
+        this.recycling = recycling;
     }
 
     @Override
     public ListCell<T> call(ListView<T> param) {
         return new ListCell<T>() {
+
+            private LoadedNode<N, C> loadedNode;
+
             @Override
             protected void updateItem(T item, boolean empty) {
                 super.updateItem(item, empty);
@@ -60,20 +84,40 @@ public class FxmlCellFactory<T, N extends Node, C> implements Callback<ListView<
                     setGraphic(null);
                     return;
                 }
-                final LoadedNode<N, C> loadedNode = Loader.load(fxmlResource);
-                nodeCallback.ifPresent((callback) -> callback.accept(item, loadedNode.getNode()));
-                controllerCallback.ifPresent((callback) -> callback.accept(item, loadedNode.getController()));
-                setGraphic(loadedNode.getNode());
+                final LoadedNode<N, C> boundNode = obtainLoadedNode();
+                nodeCallback.ifPresent((callback) -> callback.accept(item, boundNode.getNode()));
+                controllerCallback.ifPresent((callback) -> callback.accept(item, boundNode.getController()));
+                setGraphic(boundNode.getNode());
+            }
+
+            private LoadedNode<N, C> obtainLoadedNode() {
+                if (!recycling) {
+                    return Loader.load(fxmlResource);
+                }
+                if (loadedNode == null) {
+                    loadedNode = Loader.load(fxmlResource);
+                } else if (loadedNode.getController() instanceof Recyclable) {
+                    ((Recyclable) loadedNode.getController()).recycle();
+                }
+                return loadedNode;
             }
         };
     }
 
+    /**
+     * @return True if the cells created by this factory reuse their node.
+     */
+    public boolean isRecycling() {
+        return recycling;
+    }
+
     @SuppressWarnings("PublicInnerClass")
     public static class Builder<T, N extends Node, C> {
 
         private Optional<String> fxmlResource = Optional.empty();
         private BiConsumer<T, N> nodeCallback = null;
         private BiConsumer<T, C> controllerCallback = null;
+        private boolean recycling = false;
 
         public Builder() {
         }
@@ -97,8 +141,13 @@ public class FxmlCellFactory<T, N extends Node, C> implements Callback<ListView<
             return this;
         }
 
+        public Builder<T, N, C> setRecycling(boolean recycling) {
+            this.recycling = recycling;
+            return this;
+        }
+
         public FxmlCellFactory<T, N, C> create() {
-            return new FxmlCellFactory<>(fxmlResource.get(), nodeCallback, controllerCallback);
+            return new FxmlCellFactory<>(fxmlResource.get(), nodeCallback, controllerCallback, recycling);
         }
 
     }
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.misc;
+
+import io.boschman.fxstager.concurrent.TaskLauncher;
+import io.boschman.fxstager.concurrent.TaskPriority;
+import io.boschman.fxstager.loading.LoadedNode;
+import io.boschman.fxstager.loading.Loader;
+import io.boschman.fxstager.loading.ScreenLoaderException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.scene.Node;
+
+/**
+ * A pool of loaded FXML resources, keyed by URL, for elements that are opened
+ * over and over, such as dialogs and detail panes. Instead of loading such an
+ * element every time, it is acquired from the pool and released back into it
+ * when it is closed. Controllers that implement {@link Recyclable} are reset
+ * when they are released. This class is thread safe, but as with any node, a
+ * pooled node may only be used on the JavaFX Application thread once it is
+ * part of a scene.
+ *
+ * @author Arjan Boschman
+ */
+public class LoadedNodePool {
+
+    private final Map<String, Deque<LoadedNode<?, ?>>> idleNodes = new HashMap<>();
+    private final Map<String, Integer> maximumIdle = new HashMap<>();
+    private final int defaultMaximumIdle;
+
+    /**
+     * @param defaultMaximumIdle The maximum number of idle instances kept per
+     *                           URL, unless set otherwise with
+     *                           {@link #setMaximumIdle(URL, int)}.
+     */
+    public LoadedNodePool(int defaultMaximumIdle) {
+        this.defaultMaximumIdle = defaultMaximumIdle;
+    }
+
+    /**
+     * Sets the maximum number of idle instances kept for a single URL.
+     * Instances released while the maximum has been reached are discarded.
+     *
+     * @param url         The URL of the FXML resource.
+     * @param maximumIdle The maximum number of idle instances.
+     */
+    public synchronized void setMaximumIdle(URL url, int maximumIdle) {
+        this.maximumIdle.put(url.toExternalForm(), maximumIdle);
+        trim(url.toExternalForm());
+    }
+
+    /**
+     * Takes an idle instance of an FXML resource from the pool, loading a new
+     * one if none is idle.
+     *
+     * @param <N>      The type of Node being loaded.
+     * @param <C>      The type of the controller that belongs to this FXML
+     *                 resource.
+     * @param pathname The pathname to the FXML resource.
+     * @return A LoadedNode that wraps both the node and the controller.
+     * @throws ScreenLoaderException If an error occurs loading the resource.
+     */
+    public <N extends Node, C> LoadedNode<N, C> acquire(String pathname) throws ScreenLoaderException {
+        return acquire(Loader.getUrl(pathname));
+    }
+
+    /**
+     * Takes an idle instance of an FXML resource from the pool, loading a new
+     * one if none is idle.
+     *
+     * @param <N> The type of Node being loaded.
+     * @param <C> The type of the controller that belongs to this FXML resource.
+     * @param url The URL where the FXML resource can be found.
+     * @return A LoadedNode that wraps both the node and the controller.
+     * @throws ScreenLoaderException If an error occurs loading the resource.
+     */
+    @SuppressWarnings("unchecked")
+    public <N extends Node, C> LoadedNode<N, C> acquire(URL url) throws ScreenLoaderException {
+        synchronized (this) {
+            final Deque<LoadedNode<?, ?>> idle = idleNodes.get(url.toExternalForm());
+            if (idle != null && !idle.isEmpty()) {
+                return (LoadedNode<N, C>) idle.pop();
+            }
+        }
+        return Loader.load(url);
+    }
+
+    /**
+     * Returns an instance acquired from this pool. If its controller is
+     * {@link Recyclable}, it is reset first. The node should be removed from
+     * the scene before it is released. Releasing an instance that is already
+     * idle in the pool has no effect.
+     *
+     * @param url        The URL the instance was acquired for.
+     * @param loadedNode The instance.
+     */
+    public void release(URL url, LoadedNode<?, ?> loadedNode) {
+        if (isIdle(url.toExternalForm(), loadedNode)) {
+            return;
+        }
+        if (loadedNode.getController() instanceof Recyclable) {
+            ((Recyclable) loadedNode.getController()).recycle();
+        }
+        offer(url.toExternalForm(), loadedNode);
+    }
+
+    /**
+     * Loads instances of an FXML resource on the thread pool of the given
+     * TaskLauncher, until the pool holds the given number of idle instances
+     * or its maximum for the URL has been reached. Resources that need the
+     * JavaFX Application thread to construct their nodes can't be pre-warmed.
+     * A bounded TaskLauncher may drop or reject some of the loads when its
+     * queue is full; those instances are simply not pre-warmed.
+     *
+     * @param url          The URL where the FXML resource can be found.
+     * @param count        The number of idle instances wanted.
+     * @param taskLauncher The TaskLauncher whose thread pool loads the
+     *                     instances.
+     * @return A future that completes once all loads have finished, with the
+     *         number of instances that were added to the pool. It fails if an
+     *         instance fails to load.
+     */
+    public CompletableFuture<Integer> prewarm(URL url, int count, TaskLauncher taskLauncher) {
+        final String key = url.toExternalForm();
+        final int missing;
+        synchronized (this) {
+            missing = Math.min(count, getMaximumIdle(key)) - getIdleCount(url);
+        }
+        final AtomicInteger prewarmed = new AtomicInteger();
+        final List<CompletableFuture<?>> loads = new ArrayList<>();
+        for (int i = 0; i < missing; i++) {
+            final CompletableFuture<LoadedNode<Node, Object>> load;
+            try {
+                load = taskLauncher.supplyAsync(() -> Loader.load(url), TaskPriority.BACKGROUND);
+            } catch (RejectedExecutionException ex) {
+                //The queue is full, so the remaining loads would be rejected too.
+                break;
+            }
+            loads.add(load.handle((LoadedNode<Node, Object> loadedNode, Throwable throwable) -> {
+                if (throwable == null) {
+                    if (offer(key, loadedNode)) {
+                        prewarmed.incrementAndGet();
+                    }
+                } else if (!(throwable instanceof CancellationException)) {
+                    //A CancellationException means the TaskLauncher dropped the load.
+                    throw throwable instanceof CompletionException ? (CompletionException) throwable : new CompletionException(throwable);
+                }
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[loads.size()]))
+                .thenApply((Void ignored) -> prewarmed.get());
+    }
+
+    /**
+     * @param url The URL of the FXML resource.
+     * @return The number of idle instances of the resource in the pool.
+     */
+    public synchronized int getIdleCount(URL url) {
+        final Deque<LoadedNode<?, ?>> idle = idleNodes.get(url.toExternalForm());
+        return idle == null ? 0 : idle.size();
+    }
+
+    /**
+     * Discards all idle instances of an FXML resource.
+     *
+     * @param url The URL of the FXML resource.
+     */
+    public synchronized void clear(URL url) {
+        idleNodes.remove(url.toExternalForm());
+    }
+
+    /**
+     * Discards all idle instances.
+     */
+    public synchronized void clear() {
+        idleNodes.clear();
+    }
+
+    private synchronized boolean offer(String key, LoadedNode<?, ?> loadedNode) {
+        final Deque<LoadedNode<?, ?>> idle = idleNodes.computeIfAbsent(key, (String k) -> new ArrayDeque<>());
+        if (idle.size() < getMaximumIdle(key) && !isIdle(key, loadedNode)) {
+            idle.push(loadedNode);
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized boolean isIdle(String key, LoadedNode<?, ?> loadedNode) {
+        final Deque<LoadedNode<?, ?>> idle = idleNodes.get(key);
+        if (idle == null) {
+            return false;
+        }
+        for (LoadedNode<?, ?> idleNode : idle) {
+            if (idleNode == loadedNode) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void trim(String key) {
+        final Deque<LoadedNode<?, ?>> idle = idleNodes.get(key);
+        while (idle != null && idle.size() > getMaximumIdle(key)) {
+            idle.removeLast();
+        }
+    }
+
+    private int getMaximumIdle(String key) {
+        return maximumIdle.getOrDefault(key, defaultMaximumIdle);
+    }
+
+}
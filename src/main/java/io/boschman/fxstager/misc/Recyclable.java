@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.misc;
+
+/**
+ * Optional hook for controllers whose node is reused for a different item,
+ * such as the controller of a recycled cell or of a node released into a
+ * {@link LoadedNodePool}.
+ *
+ * @author Arjan Boschman
+ */
+public interface Recyclable {
+
+    /**
+     * Will be called before the node and controller are bound to the next
+     * item. Any state left over from the previous item should be cleared here.
+     */
+    void recycle();
+
+}
@@ -17,14 +17,29 @@
  */
 package io.boschman.fxstager.screens;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import javafx.animation.Animation;
+
 /**
  * An abstract implementation of the Controller interface.
+ * <p>
+ * Animations and background tasks can be registered with the controller, so
+ * that they don't consume CPU while the screen is hidden. Registered
+ * animations are paused when the screen is suspended, and resumed when it is
+ * displayed again. Registered tasks are cancelled when the screen is
+ * suspended. Subclasses that override onSuspend, onResume or onUnload should
+ * call the super implementation.
  *
  * @author Arjan Boschman
  */
 public abstract class AbstractController implements Controller {
 
     private Stager parent;
+    private final List<Animation> animations = new ArrayList<>();
+    private final List<Animation> pausedAnimations = new ArrayList<>();
+    private final List<Future<?>> tasks = new ArrayList<>();
 
     @Override
     public void setParent(Stager parent) {
@@ -38,4 +53,70 @@ public abstract class AbstractController implements Controller {
         return parent;
     }
 
+    /**
+     * Registers an animation that is to be paused while this screen is
+     * hidden. Only animations that are running when the screen is suspended
+     * are paused, and resumed later.
+     *
+     * @param animation The animation.
+     */
+    protected void registerAnimation(Animation animation) {
+        animations.add(animation);
+    }
+
+    /**
+     * Undoes {@link #registerAnimation(Animation)}.
+     *
+     * @param animation The animation.
+     */
+    protected void unregisterAnimation(Animation animation) {
+        animations.remove(animation);
+        pausedAnimations.remove(animation);
+    }
+
+    /**
+     * Registers a background task, such as a Task created by a TaskLauncher,
+     * that is to be cancelled if this screen is hidden before it is done.
+     *
+     * @param task The task.
+     */
+    protected void registerTask(Future<?> task) {
+        tasks.removeIf(Future::isDone);
+        tasks.add(task);
+    }
+
+    @Override
+    public void onSuspend() {
+        for (Animation animation : animations) {
+            if (animation.getStatus() == Animation.Status.RUNNING) {
+                animation.pause();
+                pausedAnimations.add(animation);
+            }
+        }
+        cancelTasks();
+    }
+
+    @Override
+    public void onResume() {
+        for (Animation animation : pausedAnimations) {
+            if (animation.getStatus() == Animation.Status.PAUSED) {
+                animation.play();
+            }
+        }
+        pausedAnimations.clear();
+    }
+
+    @Override
+    public void onUnload() {
+        animations.forEach(Animation::stop);
+        animations.clear();
+        pausedAnimations.clear();
+        cancelTasks();
+    }
+
+    private void cancelTasks() {
+        tasks.forEach((Future<?> task) -> task.cancel(true));
+        tasks.clear();
+    }
+
 }
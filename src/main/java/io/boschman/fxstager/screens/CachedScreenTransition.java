@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.screens;
+
+import javafx.scene.CacheHint;
+
+/**
+ * Decorates another transition, caching the Stager as a bitmap for as long as
+ * the transition plays. Changes to opacity and translation then only
+ * re-composite the bitmap, instead of re-rendering the whole scene graph every
+ * frame. The Stager's own cache settings are restored afterwards.
+ *
+ * @author Arjan Boschman
+ */
+final class CachedScreenTransition implements ScreenTransition {
+
+    private final ScreenTransition delegate;
+    private Stager cachedStager;
+    private boolean wasCached;
+    private CacheHint previousCacheHint;
+
+    CachedScreenTransition(ScreenTransition delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void hide(Stager stager, Runnable onHidden) {
+        enableCache(stager);
+        delegate.hide(stager, onHidden);
+    }
+
+    @Override
+    public void show(Stager stager, Runnable onShown) {
+        enableCache(stager);
+        delegate.show(stager, () -> {
+            restoreCache();
+            onShown.run();
+        });
+    }
+
+    @Override
+    public void reverseHide(Stager stager, Runnable onShown) {
+        enableCache(stager);
+        delegate.reverseHide(stager, () -> {
+            restoreCache();
+            onShown.run();
+        });
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+        restoreCache();
+    }
+
+    private void enableCache(Stager stager) {
+        if (cachedStager == stager) {
+            return;
+        }
+        restoreCache();
+        cachedStager = stager;
+        wasCached = stager.isCache();
+        previousCacheHint = stager.getCacheHint();
+        stager.setCache(true);
+        stager.setCacheHint(CacheHint.SPEED);
+    }
+
+    private void restoreCache() {
+        if (cachedStager != null) {
+            cachedStager.setCache(wasCached);
+            cachedStager.setCacheHint(previousCacheHint);
+            cachedStager = null;
+        }
+    }
+
+}
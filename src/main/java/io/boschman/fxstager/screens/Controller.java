@@ -47,4 +47,42 @@ public interface Controller {
         //Do nothing by default.
     }
 
+    /**
+     * Will be called every time another screen has been set as the active
+     * screen, when this screen starts being hidden. The Node is still in the
+     * scene while the hide transition plays.
+     */
+    default void onHide() {
+        //Do nothing by default.
+    }
+
+    /**
+     * Will be called after onHide, once the hide transition has ended and the
+     * Node has been removed from the scene. Anything that consumes CPU while
+     * the screen is not displayed, such as timers, animations and polling
+     * tasks, should be paused or cancelled here.
+     */
+    default void onSuspend() {
+        //Do nothing by default.
+    }
+
+    /**
+     * Will be called when a screen that has been suspended is added to the
+     * scene again, right before onDisplay and before the show transition
+     * starts. Anything paused by onSuspend can be resumed here. Not called
+     * when the screen is displayed for the first time.
+     */
+    default void onResume() {
+        //Do nothing by default.
+    }
+
+    /**
+     * Will be called when the Node has been evicted from its Stager to free
+     * memory. Resources held by the controller should be released here. If the
+     * screen is requested again, a new Node and controller will be loaded.
+     */
+    default void onUnload() {
+        //Do nothing by default.
+    }
+
 }
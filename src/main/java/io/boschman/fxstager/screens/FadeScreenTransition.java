@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.screens;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
+import javafx.event.ActionEvent;
+import javafx.util.Duration;
+
+/**
+ * Fades the Stager out, and back in. The first screen shown fades in over its
+ * own duration. The timelines are created once and reused. Since they have no
+ * key frame at time zero, they start from whatever opacity the Stager has when
+ * they are played.
+ *
+ * @author Arjan Boschman
+ */
+final class FadeScreenTransition implements ScreenTransition {
+
+    private final Duration hideDuration;
+    private final Duration showDuration;
+    private final Duration firstShowDuration;
+    private Stager stager;
+    private Timeline fadeOut;
+    private Timeline fadeIn;
+    private Timeline firstFadeIn;
+    private boolean shown;
+
+    FadeScreenTransition(Duration hideDuration, Duration showDuration) {
+        this(hideDuration, showDuration, showDuration);
+    }
+
+    FadeScreenTransition(Duration hideDuration, Duration showDuration, Duration firstShowDuration) {
+        this.hideDuration = hideDuration;
+        this.showDuration = showDuration;
+        this.firstShowDuration = firstShowDuration;
+    }
+
+    @Override
+    public void hide(Stager stager, Runnable onHidden) {
+        bind(stager);
+        fadeIn.stop();
+        fadeOut.setOnFinished((ActionEvent event) -> onHidden.run());
+        fadeOut.playFromStart();
+    }
+
+    @Override
+    public void show(Stager stager, Runnable onShown) {
+        bind(stager);
+        fadeOut.stop();
+        final Timeline timeline = shown ? fadeIn : firstFadeIn;
+        shown = true;
+        timeline.setOnFinished((ActionEvent event) -> onShown.run());
+        timeline.playFromStart();
+    }
+
+    @Override
+    public void stop() {
+        if (stager != null) {
+            fadeOut.stop();
+            fadeIn.stop();
+            firstFadeIn.stop();
+        }
+    }
+
+    private void bind(Stager stager) {
+        if (this.stager == stager) {
+            return;
+        }
+        this.stager = stager;
+        this.shown = false;
+        this.fadeOut = new Timeline(new KeyFrame(hideDuration, new KeyValue(stager.opacityProperty(), 0.0)));
+        this.fadeIn = new Timeline(new KeyFrame(showDuration, new KeyValue(stager.opacityProperty(), 1.0)));
+        this.firstFadeIn = new Timeline(new KeyFrame(firstShowDuration, new KeyValue(stager.opacityProperty(), 1.0)));
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.screens;
+
+/**
+ * Swaps screens without animating.
+ *
+ * @author Arjan Boschman
+ */
+final class InstantScreenTransition implements ScreenTransition {
+
+    @Override
+    public void hide(Stager stager, Runnable onHidden) {
+        onHidden.run();
+    }
+
+    @Override
+    public void show(Stager stager, Runnable onShown) {
+        stager.setOpacity(1.0);
+        stager.setTranslateX(0.0);
+        onShown.run();
+    }
+
+    @Override
+    public void stop() {
+        //Nothing is ever playing.
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.screens;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Counts how often the user navigates from one screen to another, so that a
+ * NodeSwapper can predict and prefetch the screens that are likely to be
+ * requested next.
+ * <p>
+ * The counts can be kept across runs by loading them from, and saving them
+ * to, a small text file with one line per pair of screens. Screen ids may
+ * therefore not contain tabs or line breaks.
+ *
+ * @author Arjan Boschman
+ */
+public class NavigationHistory {
+
+    private static final String SEPARATOR = "\t";
+
+    private final Map<String, Map<String, Integer>> transitions = new HashMap<>();
+
+    /**
+     * Loads a history saved by {@link #save(Path)}. If the file doesn't exist
+     * or can't be read, an empty history is returned. Lines that can't be
+     * parsed are skipped.
+     *
+     * @param file The file to read.
+     * @return The loaded history.
+     */
+    public static NavigationHistory load(Path file) {
+        final NavigationHistory history = new NavigationHistory();
+        if (!Files.exists(file)) {
+            return history;
+        }
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            Logger.getLogger(NavigationHistory.class.getName()).log(Level.SEVERE, "Can't read navigation history " + file, ex);
+            return history;
+        }
+        for (String line : lines) {
+            final String[] fields = line.split(SEPARATOR);
+            if (fields.length != 3) {
+                continue;
+            }
+            try {
+                history.add(fields[0], fields[1], Integer.parseInt(fields[2]));
+            } catch (NumberFormatException ex) {
+                Logger.getLogger(NavigationHistory.class.getName()).log(Level.WARNING, "Skipping invalid line in navigation history " + file + ": " + line, ex);
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Writes the counts to a file, replacing it if it exists.
+     *
+     * @param file The file to write.
+     */
+    public synchronized void save(Path file) {
+        final List<String> lines = new ArrayList<>();
+        transitions.forEach((String from, Map<String, Integer> counts)
+                -> counts.forEach((String to, Integer count) -> lines.add(from + SEPARATOR + to + SEPARATOR + count)));
+        try {
+            Files.write(file, lines, StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            Logger.getLogger(NavigationHistory.class.getName()).log(Level.SEVERE, "Can't write navigation history " + file, ex);
+        }
+    }
+
+    /**
+     * Counts a single navigation from one screen to another.
+     *
+     * @param from The id of the screen navigated away from.
+     * @param to   The id of the screen navigated to.
+     */
+    public synchronized void record(String from, String to) {
+        add(from, to, 1);
+    }
+
+    /**
+     * @param from  The id of the current screen.
+     * @param limit The maximum number of ids to return.
+     * @return The ids of the screens most often navigated to from the given
+     *         screen, the most frequent first.
+     */
+    public synchronized List<String> getLikelyNext(String from, int limit) {
+        final Map<String, Integer> counts = transitions.getOrDefault(from, Collections.emptyMap());
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Forgets all counts.
+     */
+    public synchronized void clear() {
+        transitions.clear();
+    }
+
+    private void add(String from, String to, int count) {
+        transitions.computeIfAbsent(from, (String key) -> new HashMap<>()).merge(to, count, Integer::sum);
+    }
+
+}
@@ -17,84 +17,487 @@
  */
 package io.boschman.fxstager.screens;
 
+import io.boschman.fxstager.concurrent.TaskLauncher;
+import io.boschman.fxstager.concurrent.TaskPriority;
 import io.boschman.fxstager.loading.LoadedNode;
+import io.boschman.fxstager.loading.Loader;
+import io.boschman.fxstager.loading.ScreenLoaderException;
+import io.boschman.fxstager.metrics.StagerMetrics;
+import java.io.Serializable;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import javafx.animation.KeyFrame;
-import javafx.animation.KeyValue;
-import javafx.animation.Timeline;
-import javafx.beans.property.DoubleProperty;
-import javafx.event.ActionEvent;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javafx.scene.Node;
-import javafx.util.Duration;
 
 /**
  * This class' sole responsibility is to keep track of all screen controllers
- * and to switch between them when needed.
+ * and to switch between them when needed. Screens can either be put in
+ * already loaded, or registered by pathname, in which case they are loaded the
+ * first time they are requested.
+ * <p>
+ * Optionally, the loaded screens can be kept within a budget. Whenever a
+ * screen is loaded and the budget is exceeded, the least recently used screens
+ * are evicted. Only screens registered by pathname can be evicted, since they
+ * can be loaded again when requested. Screens that are pinned or currently
+ * being displayed are never evicted. The state of screens with a
+ * {@link StatefulController} is saved when they are evicted, and restored when
+ * they are loaded again.
+ * <p>
+ * Optionally, the NodeSwapper keeps a history of which screens follow which.
+ * Whenever a screen is displayed, the registered screens most likely to be
+ * requested next are then loaded in the background.
  *
  * @author Arjan Boschman
  */
 public class NodeSwapper extends Stager {
 
-    private final Map<String, LoadedNode<Node, Controller>> loadedScreens = new HashMap<>();
+    private final Map<String, LoadedNode<Node, Controller>> loadedScreens = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, String> screenPathnames = new HashMap<>();
+    private final Set<String> pinnedScreens = new HashSet<>();
+    private final Map<String, Serializable> savedStates = new HashMap<>();
+    private Optional<Consumer<Controller>> controllerCallback = Optional.empty();
+    private long evictionBudget = Long.MAX_VALUE;
+    private ToLongFunction<LoadedNode<Node, Controller>> screenWeigher = (LoadedNode<Node, Controller> screen) -> 1;
+    private StagerMetrics metrics = StagerMetrics.NONE;
+    private ScreenTransition transition = ScreenTransition.fade();
+    private Phase phase = Phase.IDLE;
+    private String targetScreen;
+    private String displayedScreen;
+    private final Set<String> suspendedScreens = new HashSet<>();
+    private long switchStartedAt;
+    private NavigationHistory navigationHistory = new NavigationHistory();
+    private Optional<TaskLauncher> prefetchLauncher = Optional.empty();
+    private int prefetchBudget;
+    private final Set<String> prefetchingScreens = new HashSet<>();
 
     public void putLoadedScreen(String id, LoadedNode<Node, Controller> loadedScreen) {
         this.loadedScreens.put(id, loadedScreen);
     }
 
+    /**
+     * Registers the pathname of a screen without loading it. The screen will
+     * be loaded the first time it is requested, or when
+     * {@link #loadScreen(String)} is called.
+     *
+     * @param id       The uniquely identifying id of the screen.
+     * @param pathname The pathname to the FXML resource of the screen.
+     */
+    public void registerScreen(String id, String pathname) {
+        this.screenPathnames.put(id, pathname);
+    }
+
+    /**
+     * Sets a callback that is given the controller of every screen this
+     * NodeSwapper loads, right after its onLoad method has been called.
+     *
+     * @param controllerCallback The callback, or null to remove it.
+     */
+    public void setOnController(Consumer<Controller> controllerCallback) {
+        this.controllerCallback = Optional.ofNullable(controllerCallback);
+    }
+
+    /**
+     * Loads a registered screen, unless it has been loaded already.
+     *
+     * @param id The uniquely identifying id of the screen.
+     * @return True if the screen is loaded after this call, false if no screen
+     *         was registered under the given id.
+     * @throws ScreenLoaderException If an error occurs loading the screen.
+     */
+    public boolean loadScreen(String id) {
+        if (loadedScreens.containsKey(id)) {
+            return true;
+        }
+        final String pathname = screenPathnames.get(id);
+        if (pathname == null) {
+            return false;
+        }
+        attachScreen(id, Loader.load(pathname));
+        return true;
+    }
+
+    /**
+     * Puts a screen that has been loaded elsewhere, possibly on another
+     * thread, into this NodeSwapper and initialises its controller. Must be
+     * called on the JavaFX Application thread.
+     *
+     * @param id           The uniquely identifying id of the screen.
+     * @param loadedScreen The loaded screen.
+     */
+    void attachScreen(String id, LoadedNode<Node, Controller> loadedScreen) {
+        initialiseScreen(id, loadedScreen);
+        evictIfOverBudget(id);
+    }
+
+    private void initialiseScreen(String id, LoadedNode<Node, Controller> loadedScreen) {
+        putLoadedScreen(id, loadedScreen);
+        loadedScreen.getController().setParent(this);
+        final long start = System.nanoTime();
+        loadedScreen.getController().onLoad();
+        metrics.recordOnLoad(id, System.nanoTime() - start);
+        restoreState(id, loadedScreen.getController());
+        controllerCallback.ifPresent((callback) -> callback.accept(loadedScreen.getController()));
+    }
+
+    /**
+     * Sets the metrics that receive the timings of controller callbacks and
+     * screen switches.
+     *
+     * @param metrics The metrics, or null to stop recording.
+     */
+    public void setMetrics(StagerMetrics metrics) {
+        this.metrics = metrics == null ? StagerMetrics.NONE : metrics;
+    }
+
+    /**
+     * Enables prefetching. Every time a screen is displayed, the registered
+     * screens that most often followed it are loaded on the thread pool of the
+     * TaskLauncher, and attached on the JavaFX Application thread.
+     * Screens that need the Application thread to construct their nodes
+     * can't be prefetched. Prefetching never evicts a screen: nothing is
+     * prefetched once the loaded screens have reached the eviction budget, and
+     * a prefetched screen that no longer fits the budget is dropped. Screens
+     * the TaskLauncher rejects are skipped.
+     *
+     * @param taskLauncher The TaskLauncher whose thread pool loads the screens,
+     *                     or null to disable prefetching.
+     * @param budget       The maximum number of screens prefetched each time a
+     *                     screen is displayed.
+     */
+    public void setPrefetching(TaskLauncher taskLauncher, int budget) {
+        this.prefetchLauncher = Optional.ofNullable(taskLauncher);
+        this.prefetchBudget = budget;
+    }
+
+    /**
+     * Sets the history that navigation is recorded to and that predictions
+     * are based on. Use {@link NavigationHistory#load(java.nio.file.Path)} to
+     * continue the history of a previous run.
+     *
+     * @param navigationHistory The history.
+     */
+    public void setNavigationHistory(NavigationHistory navigationHistory) {
+        this.navigationHistory = navigationHistory;
+    }
+
+    /**
+     * @return The history that navigation is recorded to.
+     */
+    public NavigationHistory getNavigationHistory() {
+        return navigationHistory;
+    }
+
+    /**
+     * Limits the number of screens kept loaded. Equivalent to an eviction
+     * budget in which every screen weighs one.
+     *
+     * @param maximumScreens The maximum number of loaded screens.
+     */
+    public void setMaximumScreens(int maximumScreens) {
+        setEvictionBudget(maximumScreens, (LoadedNode<Node, Controller> screen) -> 1);
+    }
+
+    /**
+     * Limits the total weight of the screens kept loaded. The weigher can for
+     * instance return an estimate of the memory retained by a screen.
+     *
+     * @param budget  The maximum total weight of the loaded screens.
+     * @param weigher Estimates the weight of a single loaded screen.
+     */
+    public void setEvictionBudget(long budget, ToLongFunction<LoadedNode<Node, Controller>> weigher) {
+        this.evictionBudget = budget;
+        this.screenWeigher = weigher;
+        evictIfOverBudget(null);
+    }
+
+    /**
+     * Prevents a screen from being evicted.
+     *
+     * @param id The uniquely identifying id of the screen.
+     */
+    public void pinScreen(String id) {
+        this.pinnedScreens.add(id);
+    }
+
+    /**
+     * Allows a previously pinned screen to be evicted again.
+     *
+     * @param id The uniquely identifying id of the screen.
+     */
+    public void unpinScreen(String id) {
+        this.pinnedScreens.remove(id);
+        evictIfOverBudget(null);
+    }
+
+    /**
+     * Unloads a screen, regardless of the eviction budget. The screen will be
+     * loaded again the next time it is requested.
+     *
+     * @param id The uniquely identifying id of the screen.
+     * @return True if the screen was evicted, false if it wasn't loaded or
+     *         can't be evicted.
+     */
+    public boolean evictScreen(String id) {
+        final LoadedNode<Node, Controller> loadedScreen = loadedScreens.get(id);
+        if (loadedScreen == null || !isEvictable(id)) {
+            return false;
+        }
+        loadedScreens.remove(id);
+        unload(id, loadedScreen);
+        return true;
+    }
+
+    private void evictIfOverBudget(String retainedId) {
+        if (evictionBudget == Long.MAX_VALUE) {
+            return;
+        }
+        long weight = getLoadedWeight();
+        final Iterator<Map.Entry<String, LoadedNode<Node, Controller>>> leastRecentFirst = loadedScreens.entrySet().iterator();
+        while (weight > evictionBudget && leastRecentFirst.hasNext()) {
+            final Map.Entry<String, LoadedNode<Node, Controller>> entry = leastRecentFirst.next();
+            if (entry.getKey().equals(retainedId) || !isEvictable(entry.getKey())) {
+                continue;
+            }
+            weight -= screenWeigher.applyAsLong(entry.getValue());
+            leastRecentFirst.remove();
+            unload(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private long getLoadedWeight() {
+        return loadedScreens.values().stream().mapToLong(screenWeigher).sum();
+    }
+
+    private long getRemainingBudget() {
+        if (evictionBudget == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return evictionBudget - getLoadedWeight();
+    }
+
+    private void unload(String id, LoadedNode<Node, Controller> loadedScreen) {
+        suspendedScreens.remove(id);
+        final Controller controller = loadedScreen.getController();
+        if (controller instanceof StatefulController) {
+            final Serializable state = ((StatefulController<?>) controller).saveState();
+            if (state != null) {
+                savedStates.put(id, state);
+            }
+        }
+        controller.onUnload();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void restoreState(String id, Controller controller) {
+        final Serializable state = savedStates.remove(id);
+        if (state != null && controller instanceof StatefulController) {
+            ((StatefulController<Serializable>) controller).restoreState(state);
+        }
+    }
+
+    private boolean isEvictable(String id) {
+        return screenPathnames.containsKey(id)
+                && !pinnedScreens.contains(id)
+                && !id.equals(displayedScreen)
+                && !id.equals(targetScreen);
+    }
+
+    /**
+     * @param id The uniquely identifying id of the screen.
+     * @return True if the screen has been loaded, false if it is unknown or
+     *         has only been registered.
+     */
+    public boolean isLoaded(String id) {
+        return loadedScreens.containsKey(id);
+    }
+
     public LoadedNode<Node, Controller> getLoadedScreen(String id) {
+        loadScreen(id);
         return loadedScreens.get(id);
     }
 
     public Node getNode(String id) {
-        return loadedScreens.get(id).getNode();
+        return getLoadedScreen(id).getNode();
     }
 
     public Controller getController(String id) {
-        return loadedScreens.get(id).getController();
+        return getLoadedScreen(id).getController();
     }
 
     /**
      * This method tries to displayed the screen with a predefined name. First
-     * it makes sure the screen has been already loaded. Then if there is more
-     * than one screen the new screen is been added second, and then the current
-     * screen is removed. If there isn't any screen being displayed, the new
-     * screen is just added to the root.
+     * it makes sure the screen has been loaded, loading it now if it was only
+     * registered. Then the current screen, if any, is hidden using the
+     * screen transition, after which it is replaced by the new screen, which
+     * is then shown. If another screen is requested before the transition has
+     * finished, the transition is redirected to that screen; only the screen
+     * requested last is ever swapped in and has its onDisplay method called.
+     * The outgoing screen has its onHide method called when the hide
+     * transition starts, and its onSuspend method once the transition has
+     * ended and the screen has been removed. A suspended screen has its
+     * onResume method called when it is swapped in again, before the show
+     * transition starts. Requesting the screen that is already displayed does
+     * nothing, unless it is being hidden: then the hide is reversed. The
+     * screen isn't suspended and no navigation is recorded, but since its
+     * onHide method has already been called, its onDisplay method is called
+     * again.
      *
      * @param type The uniquely identifying id of the screen.
      * @return Returns true if successful.
      */
     @Override
     public boolean setScreen(final String type) {
-        //TODO: Make transition effects customizable.
-        if (!loadedScreens.containsKey(type)) {
+        if (!loadScreen(type)) {
             return false;
         }
-
-        final DoubleProperty opacity = opacityProperty();
-        if (!getChildren().isEmpty()) {    //if there is more than one screen
-            Timeline fade = new Timeline(
-                    new KeyFrame(Duration.ZERO, new KeyValue(opacity, 1.0)),
-                    new KeyFrame(new Duration(500), (ActionEvent t) -> {
-                        getChildren().remove(0);
-                        getChildren().add(0, getNode(type));
-                        getController(type).onDisplay();
-                        Timeline fadeIn = new Timeline(
-                                new KeyFrame(Duration.ZERO, new KeyValue(opacity, 0.0)),
-                                new KeyFrame(new Duration(1000), new KeyValue(opacity, 1.0)));
-                        fadeIn.play();
-                    }, new KeyValue(opacity, 0.0)));
-            fade.play();
-        } else {
-            setOpacity(0.0);
-            getChildren().add(0, getNode(type));
-            getController(type).onDisplay();
-            Timeline fadeIn = new Timeline(
-                    new KeyFrame(Duration.ZERO, new KeyValue(opacity, 0.0)),
-                    new KeyFrame(new Duration(1500), new KeyValue(opacity, 1.0)));
-            fadeIn.play();
+        if (type.equals(displayedScreen)) {
+            if (phase == Phase.HIDING) {
+                reverseHide();
+            }
+            return true;
+        }
+        targetScreen = type;
+        switchStartedAt = System.nanoTime();
+        switch (phase) {
+            case HIDING:
+                //The screen will be swapped in when hiding has finished.
+                break;
+            case SHOWING:
+                transition.stop();
+                hideCurrentScreen();
+                break;
+            default:
+                if (getChildren().isEmpty()) {
+                    setOpacity(0.0);
+                    swapInTargetScreen();
+                } else {
+                    hideCurrentScreen();
+                }
+                break;
         }
         return true;
     }
 
+    /**
+     * Sets the transition used to switch screens. Stops any transition that
+     * is currently playing, completing the switch without animation.
+     *
+     * @param transition The new transition.
+     */
+    public void setTransition(ScreenTransition transition) {
+        this.transition.stop();
+        this.transition = transition;
+        if (phase == Phase.HIDING) {
+            swapInTargetScreen();
+        } else if (phase == Phase.SHOWING) {
+            setOpacity(1.0);
+            setTranslateX(0.0);
+            onShown();
+        }
+    }
+
+    private void hideCurrentScreen() {
+        phase = Phase.HIDING;
+        final LoadedNode<Node, Controller> loadedScreen = loadedScreens.get(displayedScreen);
+        if (loadedScreen != null) {
+            loadedScreen.getController().onHide();
+        }
+        transition.hide(this, this::swapInTargetScreen);
+    }
+
+    private void reverseHide() {
+        transition.stop();
+        targetScreen = displayedScreen;
+        switchStartedAt = System.nanoTime();
+        display(displayedScreen);
+        phase = Phase.SHOWING;
+        transition.reverseHide(this, this::onShown);
+    }
+
+    private void swapInTargetScreen() {
+        if (!getChildren().isEmpty()) {
+            getChildren().remove(0);
+        }
+        if (displayedScreen != null) {
+            suspend(displayedScreen);
+            navigationHistory.record(displayedScreen, targetScreen);
+        }
+        getChildren().add(0, getNode(targetScreen));
+        displayedScreen = targetScreen;
+        display(targetScreen);
+        phase = Phase.SHOWING;
+        transition.show(this, this::onShown);
+        prefetchLauncher.ifPresent((TaskLauncher taskLauncher) -> prefetch(taskLauncher, targetScreen));
+    }
+
+    private void prefetch(TaskLauncher taskLauncher, String from) {
+        for (String id : navigationHistory.getLikelyNext(from, prefetchBudget)) {
+            if (getRemainingBudget() <= 0) {
+                return;
+            }
+            final String pathname = screenPathnames.get(id);
+            if (pathname == null || loadedScreens.containsKey(id) || !prefetchingScreens.add(id)) {
+                continue;
+            }
+            final CompletableFuture<LoadedNode<Node, Controller>> prefetched;
+            try {
+                prefetched = taskLauncher.supplyAsync(() -> Loader.<Node, Controller>load(pathname), TaskPriority.BACKGROUND);
+            } catch (RejectedExecutionException ex) {
+                prefetchingScreens.remove(id);
+                continue;
+            }
+            prefetched.whenCompleteAsync((LoadedNode<Node, Controller> loadedScreen, Throwable throwable) -> {
+                prefetchingScreens.remove(id);
+                if (throwable == null) {
+                    if (!loadedScreens.containsKey(id) && screenWeigher.applyAsLong(loadedScreen) <= getRemainingBudget()) {
+                        initialiseScreen(id, loadedScreen);
+                    }
+                } else if (!(throwable instanceof CancellationException)) {
+                    //A CancellationException means the TaskLauncher dropped the load.
+                    Logger.getLogger(NodeSwapper.class.getName()).log(Level.SEVERE, null, throwable);
+                }
+            }, taskLauncher.getApplicationThreadExecutor());
+        }
+    }
+
+    private void onShown() {
+        phase = Phase.IDLE;
+        metrics.recordScreenSwitch(targetScreen, System.nanoTime() - switchStartedAt);
+    }
+
+    private void suspend(String type) {
+        final LoadedNode<Node, Controller> loadedScreen = loadedScreens.get(type);
+        if (loadedScreen != null) {
+            loadedScreen.getController().onSuspend();
+            suspendedScreens.add(type);
+        }
+    }
+
+    private void display(String type) {
+        if (suspendedScreens.remove(type)) {
+            getController(type).onResume();
+        }
+        final long start = System.nanoTime();
+        getController(type).onDisplay();
+        metrics.recordOnDisplay(type, System.nanoTime() - start);
+    }
+
+    /**
+     * The phases of switching screens.
+     */
+    private enum Phase {
+        IDLE, HIDING, SHOWING
+    }
+
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.screens;
+
+import javafx.util.Duration;
+
+/**
+ * A strategy for animating a Stager while it switches from one screen to
+ * another. A switch consists of two phases: first the outgoing screen is
+ * hidden, then the incoming screen is swapped in and shown. If another screen
+ * is requested halfway through, the Stager stops the transition and hides
+ * again from wherever the animation was, so implementations should animate
+ * from the Stager's current state rather than from fixed start values.
+ * <p>
+ * Implementations may keep state and reuse their animations, so a single
+ * instance must not be shared between Stagers. Methods are only called on the
+ * JavaFX Application thread.
+ *
+ * @author Arjan Boschman
+ */
+public interface ScreenTransition {
+
+    /**
+     * Hides the screen that is currently displayed.
+     *
+     * @param stager   The Stager being animated.
+     * @param onHidden Must be called once the screen is hidden, unless the
+     *                 transition is stopped first.
+     */
+    void hide(Stager stager, Runnable onHidden);
+
+    /**
+     * Shows the screen that has just been swapped in.
+     *
+     * @param stager  The Stager being animated.
+     * @param onShown Must be called once the screen is fully shown, unless
+     *                the transition is stopped first.
+     */
+    void show(Stager stager, Runnable onShown);
+
+    /**
+     * Shows the screen that was being hidden again, because it was requested
+     * before the hide finished. The hide has been stopped, and the screen
+     * should be animated back from wherever the hide left it. By default, the
+     * screen is shown as if it had just been swapped in.
+     *
+     * @param stager  The Stager being animated.
+     * @param onShown Must be called once the screen is fully shown, unless
+     *                the transition is stopped first.
+     */
+    default void reverseHide(Stager stager, Runnable onShown) {
+        show(stager, onShown);
+    }
+
+    /**
+     * Stops whatever is playing, without calling its callback. The Stager is
+     * left as it is.
+     */
+    void stop();
+
+    /**
+     * @return A transition that fades out in 500 milliseconds and fades in in
+     *         1000 milliseconds. The first screen fades in in 1500
+     *         milliseconds.
+     */
+    static ScreenTransition fade() {
+        return new FadeScreenTransition(Duration.millis(500), Duration.millis(1000), Duration.millis(1500));
+    }
+
+    /**
+     * @param hideDuration How long fading out takes.
+     * @param showDuration How long fading in takes.
+     * @return A transition that fades the Stager out and back in.
+     */
+    static ScreenTransition fade(Duration hideDuration, Duration showDuration) {
+        return new FadeScreenTransition(hideDuration, showDuration);
+    }
+
+    /**
+     * @param duration How long sliding out, and sliding in, each take.
+     * @return A transition that slides the outgoing screen out to the left,
+     *         and the incoming screen in from the right.
+     */
+    static ScreenTransition slide(Duration duration) {
+        return new SlideScreenTransition(duration);
+    }
+
+    /**
+     * @return A transition that swaps screens immediately, without animating.
+     */
+    static ScreenTransition instant() {
+        return new InstantScreenTransition();
+    }
+
+    /**
+     * Wraps a transition so that the Stager is cached as a bitmap, with
+     * CacheHint.SPEED, while it plays. Opacity and translation changes then
+     * don't re-render the screen every frame, which helps on machines without
+     * hardware acceleration. The Stager's cache settings are restored when the
+     * transition ends.
+     *
+     * @param transition The transition to wrap.
+     * @return The wrapped transition.
+     */
+    static ScreenTransition cached(ScreenTransition transition) {
+        return new CachedScreenTransition(transition);
+    }
+
+    /**
+     * Wraps a transition so that the outgoing and incoming screens are each
+     * replaced by a snapshot image while they are animated. The live screens
+     * are put back when the transition ends. Unlike with {@link
+     * #cached(ScreenTransition)}, the screens are frozen for the duration of
+     * each phase, so animations inside them don't cause re-rendering either.
+     *
+     * @param transition The transition to wrap.
+     * @return The wrapped transition.
+     */
+    static ScreenTransition snapshotted(ScreenTransition transition) {
+        return new SnapshotScreenTransition(transition);
+    }
+
+}
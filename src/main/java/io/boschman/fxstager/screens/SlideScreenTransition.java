@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.screens;
+
+import javafx.animation.Interpolator;
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
+import javafx.event.ActionEvent;
+import javafx.util.Duration;
+
+/**
+ * Slides the outgoing screen out to the left, and the incoming screen in from
+ * the right. The distance depends on the width of the Stager, so the key
+ * frames are replaced on every play, but the timeline itself is reused.
+ *
+ * @author Arjan Boschman
+ */
+final class SlideScreenTransition implements ScreenTransition {
+
+    private final Duration duration;
+    private final Timeline timeline = new Timeline();
+
+    SlideScreenTransition(Duration duration) {
+        this.duration = duration;
+    }
+
+    @Override
+    public void hide(Stager stager, Runnable onHidden) {
+        timeline.stop();
+        final double width = stager.getLayoutBounds().getWidth();
+        timeline.getKeyFrames().setAll(new KeyFrame(duration,
+                new KeyValue(stager.translateXProperty(), -width, Interpolator.EASE_IN)));
+        timeline.setOnFinished((ActionEvent event) -> onHidden.run());
+        timeline.playFromStart();
+    }
+
+    @Override
+    public void show(Stager stager, Runnable onShown) {
+        timeline.stop();
+        stager.setOpacity(1.0);
+        stager.setTranslateX(stager.getLayoutBounds().getWidth());
+        timeline.getKeyFrames().setAll(new KeyFrame(duration,
+                new KeyValue(stager.translateXProperty(), 0.0, Interpolator.EASE_OUT)));
+        timeline.setOnFinished((ActionEvent event) -> onShown.run());
+        timeline.playFromStart();
+    }
+
+    @Override
+    public void reverseHide(Stager stager, Runnable onShown) {
+        timeline.stop();
+        timeline.getKeyFrames().setAll(new KeyFrame(duration,
+                new KeyValue(stager.translateXProperty(), 0.0, Interpolator.EASE_OUT)));
+        timeline.setOnFinished((ActionEvent event) -> onShown.run());
+        timeline.playFromStart();
+    }
+
+    @Override
+    public void stop() {
+        timeline.stop();
+    }
+
+}
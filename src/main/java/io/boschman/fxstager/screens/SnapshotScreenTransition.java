@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.screens;
+
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Decorates another transition, replacing the screen with a snapshot of itself
+ * for as long as each phase plays, so that only a single image is rendered
+ * every frame. The live screen is put back when the phase finishes or is
+ * stopped. The snapshot image is reused while the screen's size stays the
+ * same.
+ *
+ * @author Arjan Boschman
+ */
+final class SnapshotScreenTransition implements ScreenTransition {
+
+    private final ScreenTransition delegate;
+    private final SnapshotParameters snapshotParameters = new SnapshotParameters();
+    private final ImageView standIn = new ImageView();
+    private Stager stager;
+    private Node liveNode;
+
+    SnapshotScreenTransition(ScreenTransition delegate) {
+        this.delegate = delegate;
+        this.snapshotParameters.setFill(Color.TRANSPARENT);
+    }
+
+    @Override
+    public void hide(Stager stager, Runnable onHidden) {
+        replaceWithSnapshot(stager);
+        delegate.hide(stager, () -> {
+            restoreLiveNode();
+            onHidden.run();
+        });
+    }
+
+    @Override
+    public void show(Stager stager, Runnable onShown) {
+        replaceWithSnapshot(stager);
+        delegate.show(stager, () -> {
+            restoreLiveNode();
+            onShown.run();
+        });
+    }
+
+    @Override
+    public void reverseHide(Stager stager, Runnable onShown) {
+        replaceWithSnapshot(stager);
+        delegate.reverseHide(stager, () -> {
+            restoreLiveNode();
+            onShown.run();
+        });
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+        restoreLiveNode();
+    }
+
+    private void replaceWithSnapshot(Stager stager) {
+        restoreLiveNode();
+        if (stager.getChildren().isEmpty()) {
+            return;
+        }
+        final Node node = stager.getChildren().get(0);
+        final Bounds bounds = node.getBoundsInParent();
+        final WritableImage previous = (WritableImage) standIn.getImage();
+        final boolean reusable = previous != null
+                && (int) Math.ceil(bounds.getWidth()) == (int) previous.getWidth()
+                && (int) Math.ceil(bounds.getHeight()) == (int) previous.getHeight();
+        standIn.setImage(node.snapshot(snapshotParameters, reusable ? previous : null));
+        standIn.setLayoutX(bounds.getMinX());
+        standIn.setLayoutY(bounds.getMinY());
+        this.stager = stager;
+        this.liveNode = node;
+        stager.getChildren().set(0, standIn);
+    }
+
+    private void restoreLiveNode() {
+        if (liveNode == null) {
+            return;
+        }
+        final int index = stager.getChildren().indexOf(standIn);
+        if (index >= 0) {
+            stager.getChildren().set(index, liveNode);
+        }
+        liveNode = null;
+        stager = null;
+    }
+
+}
@@ -17,12 +17,25 @@
  */
 package io.boschman.fxstager.screens;
 
+import io.boschman.fxstager.concurrent.TaskLauncher;
 import io.boschman.fxstager.loading.LoadedNode;
 import io.boschman.fxstager.loading.Loader;
+import io.boschman.fxstager.metrics.StagerMetrics;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 import javafx.scene.Node;
 
 /**
@@ -34,6 +47,16 @@ public class StagerBuilder {
     private final Map<String, String> screensMap = new HashMap<>();
     private Optional<Consumer<Controller>> controllerCallback = Optional.empty();
     private Optional<String> initialValue = Optional.empty();
+    private final Set<String> eagerKeys = new HashSet<>();
+    private final Set<String> pinnedKeys = new HashSet<>();
+    private boolean lazy = false;
+    private long evictionBudget = Long.MAX_VALUE;
+    private ToLongFunction<LoadedNode<Node, Controller>> screenWeigher = (LoadedNode<Node, Controller> screen) -> 1;
+    private StagerMetrics metrics = StagerMetrics.NONE;
+    private Supplier<ScreenTransition> transitionFactory = ScreenTransition::fade;
+    private TaskLauncher prefetchLauncher;
+    private int prefetchBudget;
+    private Optional<NavigationHistory> navigationHistory = Optional.empty();
 
     public StagerBuilder addScreen(String key, String parent, String name) {
         screensMap.put(key, parent + name);
@@ -60,17 +83,214 @@ public class StagerBuilder {
         return this;
     }
 
+    /**
+     * In lazy mode screens are not loaded by {@link #create()}, but the first
+     * time they are set as the active screen. Screens marked with
+     * {@link #loadEagerly(String...)} are still loaded up front.
+     *
+     * @param lazy True to load screens on demand, false to load all screens
+     *             when the Stager is created.
+     * @return This builder.
+     */
+    public StagerBuilder setLazy(boolean lazy) {
+        this.lazy = lazy;
+        return this;
+    }
+
+    /**
+     * Marks screens to be loaded when the Stager is created, even in lazy
+     * mode.
+     *
+     * @param keys The keys of the screens.
+     * @return This builder.
+     */
+    public StagerBuilder loadEagerly(String... keys) {
+        this.eagerKeys.addAll(Arrays.asList(keys));
+        return this;
+    }
+
+    /**
+     * Limits the number of screens the Stager keeps loaded. See
+     * {@link NodeSwapper#setMaximumScreens(int)}.
+     *
+     * @param maximumScreens The maximum number of loaded screens.
+     * @return This builder.
+     */
+    public StagerBuilder setMaximumScreens(int maximumScreens) {
+        return setEvictionBudget(maximumScreens, (LoadedNode<Node, Controller> screen) -> 1);
+    }
+
+    /**
+     * Limits the total weight of the screens the Stager keeps loaded. See
+     * {@link NodeSwapper#setEvictionBudget(long, ToLongFunction)}.
+     *
+     * @param budget  The maximum total weight of the loaded screens.
+     * @param weigher Estimates the weight of a single loaded screen.
+     * @return This builder.
+     */
+    public StagerBuilder setEvictionBudget(long budget, ToLongFunction<LoadedNode<Node, Controller>> weigher) {
+        this.evictionBudget = budget;
+        this.screenWeigher = weigher;
+        return this;
+    }
+
+    /**
+     * Prevents screens from ever being evicted.
+     *
+     * @param keys The keys of the screens.
+     * @return This builder.
+     */
+    public StagerBuilder pin(String... keys) {
+        this.pinnedKeys.addAll(Arrays.asList(keys));
+        return this;
+    }
+
+    /**
+     * Sets the metrics that receive the timings of the created Stager. Note
+     * that the Loader is configured separately, through
+     * {@link Loader#setMetrics(StagerMetrics)}.
+     *
+     * @param metrics The metrics, or null to stop recording.
+     * @return This builder.
+     */
+    public StagerBuilder setMetrics(StagerMetrics metrics) {
+        this.metrics = metrics == null ? StagerMetrics.NONE : metrics;
+        return this;
+    }
+
+    /**
+     * Sets the transition used to switch screens. Since transitions may not
+     * be shared between Stagers, a factory is passed, such as
+     * {@code ScreenTransition::instant}. Fades by default.
+     *
+     * @param transitionFactory Creates the transition for the Stager.
+     * @return This builder.
+     */
+    public StagerBuilder setTransition(Supplier<ScreenTransition> transitionFactory) {
+        this.transitionFactory = transitionFactory;
+        return this;
+    }
+
+    /**
+     * Makes the Stager prefetch the screens likely to be requested next. See
+     * {@link NodeSwapper#setPrefetching(TaskLauncher, int)}.
+     *
+     * @param taskLauncher The TaskLauncher whose thread pool loads the screens.
+     * @param budget       The maximum number of screens prefetched each time a
+     *                     screen is displayed.
+     * @return This builder.
+     */
+    public StagerBuilder setPrefetching(TaskLauncher taskLauncher, int budget) {
+        this.prefetchLauncher = taskLauncher;
+        this.prefetchBudget = budget;
+        return this;
+    }
+
+    /**
+     * Sets the history that the Stager's predictions are based on, for
+     * instance one loaded from a previous run. The Stager starts with an empty
+     * history otherwise.
+     *
+     * @param navigationHistory The history.
+     * @return This builder.
+     */
+    public StagerBuilder setNavigationHistory(NavigationHistory navigationHistory) {
+        this.navigationHistory = Optional.ofNullable(navigationHistory);
+        return this;
+    }
+
     public Stager create() {
-        final NodeSwapper nodeSwapper = new NodeSwapper();
-        for (Map.Entry<String, String> entry : screensMap.entrySet()) {
-            final LoadedNode<Node, Controller> loadedScreen = Loader.load(entry.getValue());
-            nodeSwapper.putLoadedScreen(entry.getKey(), loadedScreen);
-            loadedScreen.getController().setParent(nodeSwapper);
-            loadedScreen.getController().onLoad();
-            controllerCallback.ifPresent((callback) -> callback.accept(loadedScreen.getController()));
-        }
+        final long start = System.nanoTime();
+        final NodeSwapper nodeSwapper = createNodeSwapper();
+        final List<String> keys = getKeysToLoad();
+        keys.forEach(nodeSwapper::loadScreen);
         initialValue.ifPresent(nodeSwapper::setScreen);
+        metrics.recordStagerCreated(keys.size(), System.nanoTime() - start);
+        return nodeSwapper;
+    }
+
+    /**
+     * Creates the Stager, loading its screens concurrently on the thread pool
+     * of the given TaskLauncher. The loaded screens are attached to the Stager
+     * on the JavaFX Application thread, which is also where the returned
+     * future completes. Screens that need the Application thread to construct
+     * their nodes cannot be loaded this way. In lazy mode only the screens
+     * marked with {@link #loadEagerly(String...)} are loaded.
+     *
+     * @param taskLauncher The TaskLauncher whose thread pool loads the screens.
+     * @return A future that completes with the Stager once all screens have
+     *         been loaded and the initial screen has been set.
+     */
+    public CompletableFuture<Stager> createAsync(TaskLauncher taskLauncher) {
+        return createAsync(taskLauncher, (double progress) -> {
+            //No progress reporting.
+        });
+    }
+
+    /**
+     * Creates the Stager, loading its screens concurrently on the thread pool
+     * of the given TaskLauncher. See {@link #createAsync(TaskLauncher)}.
+     *
+     * @param taskLauncher The TaskLauncher whose thread pool loads the screens.
+     * @param onProgress   Is given the fraction of screens loaded so far, a
+     *                     value between 0 and 1, on the JavaFX Application
+     *                     thread each time a screen has been attached. If
+     *                     there are no screens to load, it is given 1 once.
+     * @return A future that completes with the Stager once all screens have
+     *         been loaded and the initial screen has been set. It fails if a
+     *         screen fails to load, or if the TaskLauncher rejects its load,
+     *         once the other loads have finished.
+     */
+    public CompletableFuture<Stager> createAsync(TaskLauncher taskLauncher, DoubleConsumer onProgress) {
+        final long start = System.nanoTime();
+        final NodeSwapper nodeSwapper = createNodeSwapper();
+        final List<String> keys = getKeysToLoad();
+        final AtomicInteger attached = new AtomicInteger();
+        final CompletableFuture<?>[] loads = keys.stream()
+                .map((String key) -> loadAsync(screensMap.get(key), taskLauncher)
+                        .thenAcceptAsync((LoadedNode<Node, Controller> loadedScreen) -> {
+                            nodeSwapper.attachScreen(key, loadedScreen);
+                            onProgress.accept((double) attached.incrementAndGet() / keys.size());
+                        }, taskLauncher::runOnApplicationThread))
+                .toArray(CompletableFuture<?>[]::new);
+        return CompletableFuture.allOf(loads).thenApplyAsync((Void ignored) -> {
+            if (keys.isEmpty()) {
+                onProgress.accept(1.0);
+            }
+            initialValue.ifPresent(nodeSwapper::setScreen);
+            metrics.recordStagerCreated(keys.size(), System.nanoTime() - start);
+            return nodeSwapper;
+        }, taskLauncher::runOnApplicationThread);
+    }
+
+    private static CompletableFuture<LoadedNode<Node, Controller>> loadAsync(String pathname, TaskLauncher taskLauncher) {
+        try {
+            return CompletableFuture.supplyAsync(() -> Loader.<Node, Controller>load(pathname), taskLauncher::executeRunnable);
+        } catch (RejectedExecutionException ex) {
+            //Thrown here, it would orphan the loads that were already started.
+            final CompletableFuture<LoadedNode<Node, Controller>> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(ex);
+            return rejected;
+        }
+    }
+
+    private NodeSwapper createNodeSwapper() {
+        final NodeSwapper nodeSwapper = new NodeSwapper();
+        controllerCallback.ifPresent(nodeSwapper::setOnController);
+        screensMap.forEach(nodeSwapper::registerScreen);
+        pinnedKeys.forEach(nodeSwapper::pinScreen);
+        nodeSwapper.setEvictionBudget(evictionBudget, screenWeigher);
+        nodeSwapper.setMetrics(metrics);
+        nodeSwapper.setTransition(transitionFactory.get());
+        nodeSwapper.setPrefetching(prefetchLauncher, prefetchBudget);
+        navigationHistory.ifPresent(nodeSwapper::setNavigationHistory);
         return nodeSwapper;
     }
 
+    private List<String> getKeysToLoad() {
+        return screensMap.keySet().stream()
+                .filter((String key) -> !lazy || eagerKeys.contains(key))
+                .collect(Collectors.toList());
+    }
+
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.screens;
+
+import java.io.Serializable;
+
+/**
+ * A controller whose screen state, such as scroll positions, form inputs and
+ * selections, survives the screen being evicted and loaded again. This allows
+ * heavy screens to be evicted aggressively.
+ *
+ * @author Arjan Boschman
+ * @param <S> The type of the state. Should be small, since it is kept in
+ *            memory while the screen is unloaded.
+ */
+public interface StatefulController<S extends Serializable> extends Controller {
+
+    /**
+     * Will be called right before onUnload, when the Node is evicted from its
+     * Stager.
+     *
+     * @return The state of the screen, or null if there is nothing to restore.
+     */
+    S saveState();
+
+    /**
+     * Will be called right after onLoad, when a screen that has been evicted
+     * is loaded again.
+     *
+     * @param state The state returned by saveState before the screen was
+     *              evicted.
+     */
+    void restoreState(S state);
+
+}
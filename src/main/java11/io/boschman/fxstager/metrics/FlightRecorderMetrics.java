@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.metrics;
+
+import java.net.URL;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits every recorded timing as a JDK Flight Recorder event. Obtain an
+ * instance through {@link StagerMetrics#flightRecorder()}.
+ *
+ * @author Arjan Boschman
+ */
+public class FlightRecorderMetrics implements StagerMetrics {
+
+    @Override
+    public void recordLoad(URL url, long ioNanos, long parseNanos, long controllerNanos) {
+        final LoadEvent event = new LoadEvent();
+        if (event.shouldCommit()) {
+            event.url = url.toExternalForm();
+            event.ioTime = ioNanos;
+            event.parseTime = parseNanos;
+            event.controllerTime = controllerNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void recordStagerCreated(int loadedScreens, long nanos) {
+        final StagerCreatedEvent event = new StagerCreatedEvent();
+        if (event.shouldCommit()) {
+            event.loadedScreens = loadedScreens;
+            event.time = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void recordOnLoad(String screenId, long nanos) {
+        final CallbackEvent event = new CallbackEvent();
+        if (event.shouldCommit()) {
+            event.screenId = screenId;
+            event.callback = "onLoad";
+            event.time = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void recordOnDisplay(String screenId, long nanos) {
+        final CallbackEvent event = new CallbackEvent();
+        if (event.shouldCommit()) {
+            event.screenId = screenId;
+            event.callback = "onDisplay";
+            event.time = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void recordScreenSwitch(String screenId, long nanos) {
+        final ScreenSwitchEvent event = new ScreenSwitchEvent();
+        if (event.shouldCommit()) {
+            event.screenId = screenId;
+            event.time = nanos;
+            event.commit();
+        }
+    }
+
+    @Name("io.boschman.fxstager.Load")
+    @Label("FXML Load")
+    @Category("FXStager")
+    @StackTrace(false)
+    static class LoadEvent extends Event {
+
+        @Label("URL")
+        String url;
+
+        @Label("I/O Time")
+        @Timespan
+        long ioTime;
+
+        @Label("Parse Time")
+        @Timespan
+        long parseTime;
+
+        @Label("Controller Time")
+        @Timespan
+        long controllerTime;
+
+    }
+
+    @Name("io.boschman.fxstager.StagerCreated")
+    @Label("Stager Created")
+    @Category("FXStager")
+    @StackTrace(false)
+    static class StagerCreatedEvent extends Event {
+
+        @Label("Loaded Screens")
+        int loadedScreens;
+
+        @Label("Time")
+        @Timespan
+        long time;
+
+    }
+
+    @Name("io.boschman.fxstager.ControllerCallback")
+    @Label("Controller Callback")
+    @Category("FXStager")
+    @StackTrace(false)
+    static class CallbackEvent extends Event {
+
+        @Label("Screen")
+        String screenId;
+
+        @Label("Callback")
+        String callback;
+
+        @Label("Time")
+        @Timespan
+        long time;
+
+    }
+
+    @Name("io.boschman.fxstager.ScreenSwitch")
+    @Label("Screen Switch")
+    @Category("FXStager")
+    @StackTrace(false)
+    static class ScreenSwitchEvent extends Event {
+
+        @Label("Screen")
+        String screenId;
+
+        @Label("Time")
+        @Timespan
+        long time;
+
+    }
+
+}
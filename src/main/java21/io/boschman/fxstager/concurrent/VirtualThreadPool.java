@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates executors that run every task on its own virtual thread. Only
+ * exists on Java 21 or newer; looked up reflectively by
+ * {@link TaskLauncher#withVirtualThreads()}.
+ *
+ * @author Arjan Boschman
+ */
+public final class VirtualThreadPool {
+
+    /**
+     * @return A new executor that starts a virtual thread for every task.
+     */
+    public static ExecutorService newExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("TaskLauncher-virtual-", 1).factory());
+    }
+
+    private VirtualThreadPool() {
+        //Private constructor to make sure no instance is created.
+    }
+
+}
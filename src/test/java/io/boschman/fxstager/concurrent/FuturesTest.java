@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Tests Futures and the futures returned by TaskLauncher.supplyAsync.
+ *
+ * @author Arjan Boschman
+ */
+public class FuturesTest {
+
+    private final TaskLauncher taskLauncher = new TaskLauncher();
+
+    @Test
+    public void testSupplyAsyncCompletesWithResult() throws Exception {
+        assertEquals("result", taskLauncher.supplyAsync(() -> "result").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSupplyAsyncFailsWithException() throws Exception {
+        final CompletableFuture<String> future = taskLauncher.supplyAsync(() -> {
+            throw new IllegalStateException("failed");
+        });
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testCancellingInterruptsRunningWork() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final CompletableFuture<String> future = taskLauncher.supplyAsync(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+            return "done";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        future.cancel(true);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAllOfKeepsOrder() throws Exception {
+        final List<CompletableFuture<Integer>> futures = Arrays.asList(
+                taskLauncher.supplyAsync(() -> sleepAndReturn(100, 1)),
+                taskLauncher.supplyAsync(() -> 2),
+                taskLauncher.supplyAsync(() -> sleepAndReturn(50, 3)));
+        assertEquals(Arrays.asList(1, 2, 3), Futures.allOf(futures).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAllOfFailsFastAndCancelsTheRest() throws Exception {
+        final CompletableFuture<Integer> slow = new CompletableFuture<>();
+        final CompletableFuture<Integer> failing = new CompletableFuture<>();
+        final CompletableFuture<List<Integer>> combined = Futures.allOf(Arrays.asList(slow, failing));
+        failing.completeExceptionally(new IllegalStateException());
+        assertTrue(combined.isCompletedExceptionally());
+        assertTrue(slow.isCancelled());
+    }
+
+    private static int sleepAndReturn(long millis, int value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+}
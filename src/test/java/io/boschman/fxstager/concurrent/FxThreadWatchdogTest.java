@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import io.boschman.fxstager.testing.FxToolkit;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class FxThreadWatchdogTest {
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        FxToolkit.start();
+    }
+
+    @Test
+    public void testStallIsReportedWithStackTrace() throws Exception {
+        final BlockingQueue<StackTraceElement[]> reports = new LinkedBlockingQueue<>();
+        final FxThreadWatchdog watchdog = new FxThreadWatchdog(100, 10000, TimeUnit.MILLISECONDS,
+                (long stalledMillis, StackTraceElement[] stackTrace) -> reports.add(stackTrace));
+        watchdog.start();
+        try {
+            FxToolkit.waitForIdle(5, TimeUnit.SECONDS);
+            Thread.sleep(300);
+            final StackTraceElement[] stackTrace = stall(reports);
+            assertNotNull(stackTrace);
+            assertTrue(stackTrace.length > 0);
+        } finally {
+            watchdog.stop();
+        }
+    }
+
+    @Test
+    public void testStallBeforeFirstHeartbeatIsReported() throws Exception {
+        final BlockingQueue<StackTraceElement[]> reports = new LinkedBlockingQueue<>();
+        final FxThreadWatchdog watchdog = new FxThreadWatchdog(100, 10000, TimeUnit.MILLISECONDS,
+                (long stalledMillis, StackTraceElement[] stackTrace) -> reports.add(stackTrace));
+        final CountDownLatch stalled = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            stalled.countDown();
+            awaitUninterruptibly(release);
+        });
+        assertTrue(stalled.await(5, TimeUnit.SECONDS));
+        watchdog.start();
+        try {
+            final StackTraceElement[] stackTrace = reports.poll(5, TimeUnit.SECONDS);
+            assertNotNull(stackTrace);
+            assertEquals(0, stackTrace.length);
+        } finally {
+            release.countDown();
+            watchdog.stop();
+        }
+    }
+
+    private static StackTraceElement[] stall(BlockingQueue<StackTraceElement[]> reports) throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        Platform.runLater(() -> awaitUninterruptibly(release));
+        try {
+            return reports.poll(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import io.boschman.fxstager.testing.FxToolkit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.util.Duration;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class LatestTasksTest {
+
+    private static final String KEY = "search";
+
+    private TaskLauncher taskLauncher;
+    private List<String> results;
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        FxToolkit.start();
+    }
+
+    @Before
+    public void setUp() {
+        taskLauncher = new TaskLauncher();
+        results = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @Test
+    public void testOnlyNewestResultIsConsumed() throws Exception {
+        FxToolkit.runOnFxThread(() -> {
+            taskLauncher.launchLatest(KEY, () -> sleepAndReturn(300, "old"), results::add);
+            taskLauncher.launchLatest(KEY, () -> "new", results::add);
+        });
+        FxToolkit.waitUntil(() -> !results.isEmpty(), 5, TimeUnit.SECONDS);
+        Thread.sleep(500);
+        FxToolkit.waitForIdle(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("new"), results);
+    }
+
+    @Test
+    public void testCancelLatestDropsResult() throws Exception {
+        FxToolkit.runOnFxThread(() -> {
+            taskLauncher.launchLatest(KEY, () -> sleepAndReturn(200, "cancelled"), results::add);
+            taskLauncher.cancelLatest(KEY);
+        });
+        Thread.sleep(400);
+        FxToolkit.waitForIdle(5, TimeUnit.SECONDS);
+        assertEquals(Collections.emptyList(), results);
+    }
+
+    @Test
+    public void testDifferentKeysDontSupersedeEachOther() throws Exception {
+        FxToolkit.runOnFxThread(() -> {
+            taskLauncher.launchLatest("a", () -> "a", results::add);
+            taskLauncher.launchLatest("b", () -> "b", results::add);
+        });
+        FxToolkit.waitUntil(() -> results.size() == 2, 5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testDebounceOnlyRunsLastWork() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        FxToolkit.runOnFxThread(() -> {
+            for (int i = 0; i < 5; i++) {
+                final String value = "value" + i;
+                taskLauncher.launchLatestDebounced(KEY, Duration.millis(100), () -> {
+                    runs.incrementAndGet();
+                    return value;
+                }, results::add);
+            }
+        });
+        FxToolkit.waitUntil(() -> !results.isEmpty(), 5, TimeUnit.SECONDS);
+        Thread.sleep(200);
+        FxToolkit.waitForIdle(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("value4"), results);
+        assertEquals(1, runs.get());
+    }
+
+    private static String sleepAndReturn(long millis, String value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import io.boschman.fxstager.testing.FxToolkit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javafx.animation.AnimationTimer;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Worker;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class ParallelChunkTaskTest {
+
+    private final TaskLauncher taskLauncher = new TaskLauncher();
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        FxToolkit.start();
+    }
+
+    @Test
+    public void testResultsArriveCompleteAndInOrder() throws Exception {
+        final List<Integer> items = range(10000);
+        final ObservableList<Integer> results = FXCollections.observableArrayList();
+        final ParallelChunkTask<Integer, Integer> task = FxToolkit.callOnFxThread(
+                () -> taskLauncher.launchParallelTask(items, 100, (Integer item) -> item * 2, results::addAll));
+        FxToolkit.waitUntil(() -> task.getState() == Worker.State.SUCCEEDED, 10, TimeUnit.SECONDS);
+        assertEquals(items.stream().map((Integer item) -> item * 2).collect(Collectors.toList()), results);
+        assertEquals(1.0, FxToolkit.callOnFxThread(task::getProgress), 0.0);
+    }
+
+    @Test
+    public void testResultsArriveAtMostOncePerPulse() throws Exception {
+        final long[] pulses = {0};
+        final AnimationTimer pulseCounter = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pulses[0]++;
+            }
+        };
+        final List<Long> deliveries = new ArrayList<>();
+        final ParallelChunkTask<Integer, Integer> task = FxToolkit.callOnFxThread(() -> {
+            pulseCounter.start();
+            return taskLauncher.launchParallelTask(range(100000), 10, (Integer item) -> item,
+                    (List<Integer> batch) -> deliveries.add(pulses[0]));
+        });
+        FxToolkit.waitUntil(() -> task.getState() == Worker.State.SUCCEEDED, 10, TimeUnit.SECONDS);
+        FxToolkit.runOnFxThread(pulseCounter::stop);
+        final List<Long> delivered = FxToolkit.callOnFxThread(() -> new ArrayList<>(deliveries));
+        assertEquals(delivered.stream().distinct().count(), delivered.size());
+    }
+
+    @Test
+    public void testResultsArriveBeforeTheEnd() throws Exception {
+        final ObservableList<Integer> results = FXCollections.observableArrayList();
+        final ParallelChunkTask<Integer, Integer> task = FxToolkit.callOnFxThread(
+                () -> taskLauncher.launchParallelTask(range(200), 10, ParallelChunkTaskTest::slowly, results::addAll));
+        FxToolkit.waitUntil(() -> !results.isEmpty(), 10, TimeUnit.SECONDS);
+        assertTrue(FxToolkit.callOnFxThread(task::isRunning));
+        FxToolkit.runOnFxThread(task::cancel);
+    }
+
+    @Test
+    public void testCancellingStopsDelivery() throws Exception {
+        final ObservableList<Integer> results = FXCollections.observableArrayList();
+        final ParallelChunkTask<Integer, Integer> task = FxToolkit.callOnFxThread(
+                () -> taskLauncher.launchParallelTask(range(2000), 10, ParallelChunkTaskTest::slowly, results::addAll));
+        FxToolkit.waitUntil(() -> !results.isEmpty(), 10, TimeUnit.SECONDS);
+        FxToolkit.runOnFxThread(task::cancel);
+        final int delivered = FxToolkit.callOnFxThread(results::size);
+        Thread.sleep(300);
+        FxToolkit.waitForIdle(5, TimeUnit.SECONDS);
+        assertEquals(Worker.State.CANCELLED, FxToolkit.callOnFxThread(task::getState));
+        assertEquals(delivered, (int) FxToolkit.callOnFxThread(results::size));
+        assertTrue(delivered < 2000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChunkSizeMustBePositive() {
+        new ParallelChunkTask<>(range(1), 0, (Integer item) -> item, (List<Integer> chunk) -> {
+        });
+    }
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+
+    private static Integer slowly(Integer item) {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return item;
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the bounded, prioritized thread pool of TaskLauncher and its
+ * rejection policies. Every test occupies the single worker thread first, so
+ * that submitted work stays in the queue.
+ *
+ * @author Arjan Boschman
+ */
+public class RejectionPolicyTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    public void testQueuedWorkRunsInPriorityOrder() throws Exception {
+        final TaskLauncher taskLauncher = occupied(TaskLauncher.bounded(1, 10, RejectionPolicy.ABORT));
+        final List<TaskPriority> order = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(3);
+        for (TaskPriority priority : Arrays.asList(TaskPriority.BACKGROUND, TaskPriority.NORMAL, TaskPriority.USER_INITIATED)) {
+            taskLauncher.executeRunnable(() -> {
+                order.add(priority);
+                done.countDown();
+            }, priority);
+        }
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(TaskPriority.USER_INITIATED, TaskPriority.NORMAL, TaskPriority.BACKGROUND), order);
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testAbortThrows() throws Exception {
+        final TaskLauncher taskLauncher = occupied(TaskLauncher.bounded(1, 1, RejectionPolicy.ABORT));
+        taskLauncher.executeRunnable(() -> {
+        });
+        taskLauncher.executeRunnable(() -> {
+        });
+    }
+
+    @Test
+    public void testDiscardCancelsNewWork() throws Exception {
+        final TaskLauncher taskLauncher = occupied(TaskLauncher.bounded(1, 1, RejectionPolicy.DISCARD));
+        final FutureTask<Void> queued = new FutureTask<>(() -> null);
+        final FutureTask<Void> discarded = new FutureTask<>(() -> null);
+        taskLauncher.executeRunnable(queued);
+        taskLauncher.executeRunnable(discarded);
+        assertTrue(discarded.isCancelled());
+        assertFalse(queued.isCancelled());
+    }
+
+    @Test
+    public void testDiscardCancelsSupplyAsyncFuture() throws Exception {
+        final TaskLauncher taskLauncher = occupied(TaskLauncher.bounded(1, 1, RejectionPolicy.DISCARD));
+        final CompletableFuture<String> queued = taskLauncher.supplyAsync(() -> "queued");
+        final CompletableFuture<String> discarded = taskLauncher.supplyAsync(() -> "discarded");
+        assertTrue(discarded.isCancelled());
+        release.countDown();
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testDiscardRejectsWorkThatCantBeCancelled() throws Exception {
+        final TaskLauncher taskLauncher = occupied(TaskLauncher.bounded(1, 1, RejectionPolicy.DISCARD));
+        CompletableFuture.supplyAsync(() -> "queued", taskLauncher.getBackgroundExecutor());
+        CompletableFuture.supplyAsync(() -> "rejected", taskLauncher.getBackgroundExecutor());
+    }
+
+    @Test
+    public void testDiscardLowestPriorityCancelsQueuedSupplyAsyncFuture() throws Exception {
+        final TaskLauncher taskLauncher = occupied(TaskLauncher.bounded(1, 1, RejectionPolicy.DISCARD_LOWEST_PRIORITY));
+        final CompletableFuture<String> background = taskLauncher.supplyAsync(() -> "background", TaskPriority.BACKGROUND);
+        final CompletableFuture<String> urgent = taskLauncher.supplyAsync(() -> "urgent", TaskPriority.USER_INITIATED);
+        assertTrue(background.isCancelled());
+        release.countDown();
+        assertEquals("urgent", urgent.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testDiscardLowestPriorityNeverDropsWorkThatCantBeCancelled() throws Exception {
+        final TaskLauncher taskLauncher = occupied(TaskLauncher.bounded(1, 1, RejectionPolicy.DISCARD_LOWEST_PRIORITY));
+        taskLauncher.executeRunnable(() -> {
+        }, TaskPriority.BACKGROUND);
+        taskLauncher.executeRunnable(() -> {
+        }, TaskPriority.USER_INITIATED);
+    }
+
+    @Test
+    public void testDiscardLowestPriorityMakesRoom() throws Exception {
+        final TaskLauncher taskLauncher = occupied(TaskLauncher.bounded(1, 1, RejectionPolicy.DISCARD_LOWEST_PRIORITY));
+        final FutureTask<Void> background = new FutureTask<>(() -> null);
+        final FutureTask<Void> urgent = new FutureTask<>(() -> null);
+        taskLauncher.executeRunnable(background, TaskPriority.BACKGROUND);
+        taskLauncher.executeRunnable(urgent, TaskPriority.USER_INITIATED);
+        assertTrue(background.isCancelled());
+        release.countDown();
+        urgent.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testDiscardLowestPriorityDropsLowerNewWork() throws Exception {
+        final TaskLauncher taskLauncher = occupied(TaskLauncher.bounded(1, 1, RejectionPolicy.DISCARD_LOWEST_PRIORITY));
+        final FutureTask<Void> urgent = new FutureTask<>(() -> null);
+        final FutureTask<Void> background = new FutureTask<>(() -> null);
+        taskLauncher.executeRunnable(urgent, TaskPriority.USER_INITIATED);
+        taskLauncher.executeRunnable(background, TaskPriority.BACKGROUND);
+        assertTrue(background.isCancelled());
+        assertFalse(urgent.isCancelled());
+    }
+
+    @Test
+    public void testCallerRuns() throws Exception {
+        final TaskLauncher taskLauncher = occupied(TaskLauncher.bounded(1, 1, RejectionPolicy.CALLER_RUNS));
+        final Thread[] runner = new Thread[1];
+        taskLauncher.executeRunnable(() -> {
+        });
+        taskLauncher.executeRunnable(() -> runner[0] = Thread.currentThread());
+        assertSame(Thread.currentThread(), runner[0]);
+    }
+
+    @Test
+    public void testQueueRespectsCapacity() {
+        final BoundedPriorityQueue queue = new BoundedPriorityQueue(2);
+        assertTrue(queue.offer(new PrioritizedRunnable(() -> {
+        }, TaskPriority.NORMAL)));
+        assertTrue(queue.offer(new PrioritizedRunnable(() -> {
+        }, TaskPriority.NORMAL)));
+        assertFalse(queue.offer(new PrioritizedRunnable(() -> {
+        }, TaskPriority.NORMAL)));
+        assertEquals(0, queue.remainingCapacity());
+    }
+
+    @Test
+    public void testPollLowestOnlyReturnsWhatItRemoved() {
+        final BoundedPriorityQueue queue = new BoundedPriorityQueue(2);
+        final PrioritizedRunnable background = new PrioritizedRunnable(new FutureTask<>(() -> null), TaskPriority.BACKGROUND);
+        final PrioritizedRunnable urgent = new PrioritizedRunnable(new FutureTask<>(() -> null), TaskPriority.USER_INITIATED);
+        queue.offer(background);
+        assertSame(background, queue.pollLowest(urgent));
+        assertTrue(queue.isEmpty());
+        assertSame(urgent, queue.pollLowest(urgent));
+    }
+
+    /**
+     * Occupies the only worker thread until the test releases it.
+     */
+    private TaskLauncher occupied(TaskLauncher taskLauncher) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        taskLauncher.executeRunnable(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return taskLauncher;
+    }
+
+}
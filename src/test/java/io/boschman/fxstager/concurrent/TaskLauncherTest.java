@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import io.boschman.fxstager.testing.FxToolkit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class TaskLauncherTest {
+
+    private final TaskLauncher taskLauncher = new TaskLauncher();
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        FxToolkit.start();
+    }
+
+    @Test
+    public void testRunOnApplicationThreadFromBackground() throws Exception {
+        final CompletableFuture<Boolean> onFxThread = new CompletableFuture<>();
+        taskLauncher.runOnApplicationThread(() -> onFxThread.complete(Platform.isFxApplicationThread()));
+        assertTrue(onFxThread.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRunOnApplicationThreadRunsImmediatelyOnApplicationThread() throws Exception {
+        final boolean[] ran = {false};
+        FxToolkit.runOnFxThread(() -> {
+            taskLauncher.runOnApplicationThread(() -> ran[0] = true);
+            assertTrue(ran[0]);
+        });
+    }
+
+    @Test
+    public void testMakeAndLaunchTaskConsumesResultOnApplicationThread() throws Exception {
+        final CompletableFuture<String> consumed = new CompletableFuture<>();
+        FxToolkit.runOnFxThread(() -> taskLauncher.makeAndLaunchTask(() -> "result", (String result) -> {
+            assertTrue(Platform.isFxApplicationThread());
+            consumed.complete(result);
+        }));
+        assertEquals("result", consumed.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testMetricsCountSubmittedAndFailedWork() throws Exception {
+        taskLauncher.supplyAsync(() -> "result").get(5, TimeUnit.SECONDS);
+        final CompletableFuture<Object> failing = taskLauncher.supplyAsync(() -> {
+            throw new IllegalStateException();
+        });
+        failing.handle((Object result, Throwable throwable) -> null).get(5, TimeUnit.SECONDS);
+        FxToolkit.waitUntil(() -> taskLauncher.getMetrics().getCompletedCount() == 2, 5, TimeUnit.SECONDS);
+        final TaskMetrics metrics = taskLauncher.getMetrics();
+        assertEquals(2, metrics.getSubmittedCount());
+        assertEquals(1, metrics.getFailedCount());
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.concurrent;
+
+import io.boschman.fxstager.testing.FxToolkit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javafx.application.Platform;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class UpdateBatcherTest {
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        FxToolkit.start();
+    }
+
+    @Test
+    public void testUpdatesAreAppliedInOrderOnApplicationThread() throws Exception {
+        final UpdateBatcher batcher = new UpdateBatcher();
+        final List<Integer> applied = new ArrayList<>();
+        final boolean[] onFxThread = {true};
+        for (int i = 0; i < 1000; i++) {
+            final int value = i;
+            batcher.post(() -> {
+                onFxThread[0] &= Platform.isFxApplicationThread();
+                applied.add(value);
+            });
+        }
+        FxToolkit.waitUntil(() -> applied.size() == 1000, 5, TimeUnit.SECONDS);
+        assertEquals(IntStream.range(0, 1000).boxed().collect(Collectors.toList()), applied);
+        assertTrue(onFxThread[0]);
+    }
+
+    @Test
+    public void testKeyedUpdatesAreCoalesced() throws Exception {
+        final UpdateBatcher batcher = new UpdateBatcher();
+        final List<String> applied = new ArrayList<>();
+        FxToolkit.runOnFxThread(() -> {
+            batcher.post("label", () -> applied.add("first"));
+            batcher.post("label", () -> applied.add("second"));
+            batcher.post("other", () -> applied.add("other"));
+            batcher.post("label", () -> applied.add("third"));
+        });
+        FxToolkit.waitUntil(() -> batcher.getPendingCount() == 0, 5, TimeUnit.SECONDS);
+        FxToolkit.waitForIdle(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("third", "other"), FxToolkit.callOnFxThread(() -> new ArrayList<>(applied)));
+    }
+
+    @Test
+    public void testBudgetSpreadsUpdatesOverPulses() throws Exception {
+        final UpdateBatcher batcher = new UpdateBatcher(1, TimeUnit.NANOSECONDS);
+        final List<Integer> applied = new ArrayList<>();
+        FxToolkit.runOnFxThread(() -> {
+            for (int i = 0; i < 3; i++) {
+                final int value = i;
+                batcher.post(() -> applied.add(value));
+            }
+        });
+        FxToolkit.waitForPulses(1, 5, TimeUnit.SECONDS);
+        assertTrue(FxToolkit.callOnFxThread(applied::size) < 3);
+        FxToolkit.waitUntil(() -> applied.size() == 3, 5, TimeUnit.SECONDS);
+    }
+
+}
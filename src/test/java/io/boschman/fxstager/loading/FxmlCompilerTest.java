@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.loading;
+
+import io.boschman.fxstager.testing.FxToolkit;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.scene.shape.Rectangle;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class FxmlCompilerTest {
+
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<?import javafx.geometry.Insets?>\n"
+            + "<?import javafx.scene.layout.*?>\n"
+            + "<?import javafx.scene.shape.Rectangle?>\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path sources;
+    private Path generatedSources;
+    private Path classes;
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        FxToolkit.start();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        sources = temporaryFolder.newFolder("sources").toPath();
+        generatedSources = temporaryFolder.newFolder("generated-sources").toPath();
+        classes = temporaryFolder.newFolder("classes").toPath();
+    }
+
+    @Test
+    public void testFactoryBuildsSameGraphAsFxmlLoader() throws Exception {
+        final URL location = write("screens/Compiled.fxml", HEADER
+                + "<VBox xmlns:fx=\"http://javafx.com/fxml/1\" fx:controller=\"" + CompiledController.class.getName() + "\""
+                + " fx:id=\"root\" spacing=\"4.5\" alignment=\"topRight\" styleClass=\"first, second\" onMouseClicked=\"#clicked\">\n"
+                + "    <padding><Insets top=\"1\" right=\"2\" bottom=\"3\" left=\"4\"/></padding>\n"
+                + "    <children>\n"
+                + "        <GridPane fx:id=\"grid\" hgap=\"2\">\n"
+                + "            <Pane id=\"explicit\" fx:id=\"cell\" GridPane.rowIndex=\"1\" GridPane.columnIndex=\"2\" prefWidth=\"10\" visible=\"false\"/>\n"
+                + "            <Rectangle width=\"5\" height=\"6\" fill=\"#ff0000\" GridPane.rowIndex=\"0\"/>\n"
+                + "        </GridPane>\n"
+                + "    </children>\n"
+                + "    <Pane fx:id=\"last\" prefHeight=\"20\"/>\n"
+                + "</VBox>\n");
+        assertEquals(Collections.singletonList("screens/Compiled.fxml"), FxmlCompiler.compile(sources, generatedSources, classes));
+        try (final URLClassLoader classLoader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, getClass().getClassLoader())) {
+            final FxmlFactory<VBox, CompiledController> factory = findFactory(classLoader, "screens/Compiled.fxml");
+            final LoadedNode<VBox, CompiledController> compiled = factory.create(location);
+            final FXMLLoader loader = new FXMLLoader(location);
+            final VBox loaded = loader.load();
+            assertEquals(describe(loaded), describe(compiled.getNode()));
+            final CompiledController controller = compiled.getController();
+            assertSame(compiled.getNode(), controller.root);
+            assertSame(compiled.getNode().getChildren().get(0), controller.grid);
+            assertSame(controller.grid.getChildren().get(0), controller.cell);
+            assertSame(compiled.getNode().getChildren().get(1), controller.last);
+            assertSame(location, controller.location);
+            assertTrue(controller.initialized);
+            compiled.getNode().getOnMouseClicked().handle(null);
+            assertEquals(1, controller.clicks);
+        }
+    }
+
+    @Test
+    public void testUnsupportedDocumentsAreLeftToFxmlLoader() throws Exception {
+        write("Expression.fxml", HEADER + "<Pane xmlns:fx=\"http://javafx.com/fxml/1\" prefWidth=\"$width\"/>\n");
+        write("Include.fxml", HEADER + "<Pane xmlns:fx=\"http://javafx.com/fxml/1\"><fx:include source=\"Other.fxml\"/></Pane>\n");
+        write("PrivateField.fxml", HEADER + "<Pane xmlns:fx=\"http://javafx.com/fxml/1\" fx:controller=\""
+                + PrivateController.class.getName() + "\" fx:id=\"root\"/>\n");
+        write("PackagePrivateField.fxml", HEADER + "<Pane xmlns:fx=\"http://javafx.com/fxml/1\" fx:controller=\""
+                + PackagePrivateController.class.getName() + "\" fx:id=\"root\"/>\n");
+        write("Plain.fxml", HEADER + "<Pane xmlns:fx=\"http://javafx.com/fxml/1\" prefWidth=\"5\"/>\n");
+        assertEquals(Collections.singletonList("Plain.fxml"), FxmlCompiler.compile(sources, generatedSources, classes));
+        final List<String> services = Files.readAllLines(classes.resolve("META-INF/services/" + FxmlFactory.class.getName()));
+        assertEquals(1, services.size());
+        assertTrue(services.get(0).startsWith("fxml.PlainFxmlFactory"));
+    }
+
+    @Test
+    public void testDiscoveredFactoryOnlyMatchesItsOwnLocation() throws Exception {
+        write("screens/Plain.fxml", HEADER + "<Pane xmlns:fx=\"http://javafx.com/fxml/1\"/>\n");
+        FxmlCompiler.compile(sources, generatedSources, classes);
+        Files.createDirectories(classes.resolve("screens"));
+        Files.copy(sources.resolve("screens/Plain.fxml"), classes.resolve("screens/Plain.fxml"));
+        try (final URLClassLoader classLoader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, getClass().getClassLoader())) {
+            final Map<String, FxmlFactory<?, ?>> factories = Loader.indexByLocation(
+                    Collections.<FxmlFactory<?, ?>>singletonList(findFactory(classLoader, "screens/Plain.fxml")));
+            assertEquals(Collections.singleton(classes.resolve("screens/Plain.fxml").toUri().toURL().toExternalForm()), factories.keySet());
+            assertFalse(factories.containsKey(sources.resolve("screens/Plain.fxml").toUri().toURL().toExternalForm()));
+        }
+    }
+
+    private URL write(String name, String document) throws IOException {
+        final Path file = sources.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, document.getBytes(StandardCharsets.UTF_8));
+        return file.toUri().toURL();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <N extends Node, C> FxmlFactory<N, C> findFactory(ClassLoader classLoader, String resourceName) {
+        for (FxmlFactory<?, ?> factory : ServiceLoader.load(FxmlFactory.class, classLoader)) {
+            if (factory.getResourceName().equals(resourceName)) {
+                return (FxmlFactory<N, C>) factory;
+            }
+        }
+        throw new AssertionError("No factory for " + resourceName);
+    }
+
+    private static String describe(Node node) {
+        final StringBuilder description = new StringBuilder(node.getClass().getName())
+                .append(" id=").append(node.getId())
+                .append(" styleClass=").append(node.getStyleClass())
+                .append(" visible=").append(node.isVisible())
+                .append(" row=").append(GridPane.getRowIndex(node))
+                .append(" column=").append(GridPane.getColumnIndex(node));
+        if (node instanceof Region) {
+            final Region region = (Region) node;
+            description.append(" padding=").append(region.getPadding())
+                    .append(" prefWidth=").append(region.getPrefWidth())
+                    .append(" prefHeight=").append(region.getPrefHeight());
+        }
+        if (node instanceof VBox) {
+            description.append(" spacing=").append(((VBox) node).getSpacing())
+                    .append(" alignment=").append(((VBox) node).getAlignment());
+        }
+        if (node instanceof GridPane) {
+            description.append(" hgap=").append(((GridPane) node).getHgap());
+        }
+        if (node instanceof Rectangle) {
+            final Rectangle rectangle = (Rectangle) node;
+            description.append(" size=").append(rectangle.getWidth()).append('x').append(rectangle.getHeight())
+                    .append(" fill=").append(rectangle.getFill());
+        }
+        if (node instanceof Parent) {
+            description.append(" [");
+            for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+                description.append(describe(child)).append(", ");
+            }
+            description.append(']');
+        }
+        return description.toString();
+    }
+
+    @SuppressWarnings("PublicInnerClass")
+    public static class CompiledController {
+
+        @FXML
+        public VBox root;
+        @FXML
+        public GridPane grid;
+        @FXML
+        public Pane cell;
+        @FXML
+        public Pane last;
+        @FXML
+        public URL location;
+        private int clicks;
+        private boolean initialized;
+
+        @FXML
+        public void clicked(MouseEvent event) {
+            clicks++;
+        }
+
+        @FXML
+        public void initialize() {
+            initialized = true;
+        }
+
+    }
+
+    @SuppressWarnings("PublicInnerClass")
+    public static class PrivateController {
+
+        @FXML
+        private Pane root;
+
+    }
+
+    @SuppressWarnings("PublicInnerClass")
+    public static class PackagePrivateController {
+
+        @FXML
+        Pane root;
+
+    }
+
+}
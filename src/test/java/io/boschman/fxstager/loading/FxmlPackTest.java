@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.loading;
+
+import io.boschman.fxstager.testing.FxToolkit;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import javafx.scene.layout.Pane;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class FxmlPackTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path sources;
+    private Path packFile;
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        FxToolkit.start();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        sources = temporaryFolder.newFolder("sources").toPath();
+        final Path document = sources.resolve("screens/packed.fxml");
+        Files.createDirectories(document.getParent());
+        Files.write(document, ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<?import javafx.scene.layout.Pane?>\n"
+                + "<Pane xmlns:fx=\"http://javafx.com/fxml/1\" id=\"packed\"/>\n").getBytes(StandardCharsets.UTF_8));
+        packFile = temporaryFolder.getRoot().toPath().resolve("fxml.pack");
+        FxmlPacker.pack(sources, packFile);
+    }
+
+    @Test
+    public void testLoadByKey() throws Exception {
+        final FxmlPack pack = FxmlPack.open(packFile, temporaryFolder.getRoot().toURI().toURL());
+        assertEquals(Collections.singleton("screens/packed.fxml"), pack.getKeys());
+        assertFalse(pack.isCompiled("screens/packed.fxml"));
+        final LoadedNode<Pane, Object> loadedNode = Loader.load(pack, "screens/packed.fxml");
+        assertEquals("packed", loadedNode.getNode().getId());
+    }
+
+    @Test
+    public void testCompiledDocumentIsBuiltWithoutParsing() throws Exception {
+        final Path classes = temporaryFolder.newFolder("classes").toPath();
+        FxmlCompiler.compile(sources, temporaryFolder.newFolder("generated-sources").toPath(), classes);
+        Files.createDirectories(classes.resolve("screens"));
+        Files.copy(sources.resolve("screens/packed.fxml"), classes.resolve("screens/packed.fxml"));
+        final Path compiledPackFile = temporaryFolder.getRoot().toPath().resolve("compiled.pack");
+        FxmlPacker.pack(sources, compiledPackFile, classes);
+        final Thread thread = Thread.currentThread();
+        final ClassLoader contextClassLoader = thread.getContextClassLoader();
+        try (final URLClassLoader classLoader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, getClass().getClassLoader())) {
+            final FxmlPack compiledPack;
+            final FxmlPack unparsablePack;
+            thread.setContextClassLoader(classLoader);
+            try {
+                compiledPack = FxmlPack.open(compiledPackFile, classes.toUri().toURL());
+                final Path unparsablePackFile = temporaryFolder.getRoot().toPath().resolve("unparsable.pack");
+                try (final OutputStream outputStream = Files.newOutputStream(unparsablePackFile)) {
+                    //Only loads if the factory is used instead of the document.
+                    FxmlPacker.write(Collections.singletonMap("screens/packed.fxml", "Not XML".getBytes(StandardCharsets.UTF_8)),
+                            Collections.singletonMap("screens/packed.fxml", compiledPack.getFactory("screens/packed.fxml").getClass().getName()),
+                            outputStream);
+                }
+                unparsablePack = FxmlPack.open(unparsablePackFile, classes.toUri().toURL());
+            } finally {
+                thread.setContextClassLoader(contextClassLoader);
+            }
+            assertTrue(compiledPack.isCompiled("screens/packed.fxml"));
+            final LoadedNode<Pane, Object> loadedNode = Loader.load(unparsablePack, "screens/packed.fxml");
+            assertEquals("packed", loadedNode.getNode().getId());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPackerRejectsMissingArguments() throws Exception {
+        FxmlPacker.main(new String[0]);
+    }
+
+    @Test(expected = ScreenLoaderException.class)
+    public void testLoadUnknownKeyFails() throws Exception {
+        Loader.load(FxmlPack.open(packFile, temporaryFolder.getRoot().toURI().toURL()), "unknown.fxml");
+    }
+
+    @Test
+    public void testOpenPackInJar() throws Exception {
+        final File jar = temporaryFolder.newFile("packed.jar");
+        try (final JarOutputStream jarOutputStream = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+            jarOutputStream.putNextEntry(new JarEntry("fxml.pack"));
+            Files.copy(packFile, jarOutputStream);
+            jarOutputStream.closeEntry();
+        }
+        final URL url = new URL("jar:" + jar.toURI().toURL().toExternalForm() + "!/fxml.pack");
+        final FxmlPack pack = FxmlPack.open(url);
+        assertEquals("jar:" + jar.toURI().toURL().toExternalForm() + "!/", pack.getBase().toExternalForm());
+        final LoadedNode<Pane, Object> loadedNode = Loader.load(pack, "screens/packed.fxml");
+        assertEquals("packed", loadedNode.getNode().getId());
+    }
+
+    @Test
+    public void testOpenPackFileByUrl() throws Exception {
+        final FxmlPack pack = FxmlPack.open(packFile.toUri().toURL());
+        assertEquals(temporaryFolder.getRoot().toURI().toURL().toExternalForm(), pack.getBase().toExternalForm());
+        Loader.addPack(pack);
+        try {
+            final LoadedNode<Pane, Object> loadedNode = Loader.load(new URL(pack.getBase(), "screens/packed.fxml"));
+            assertEquals("packed", loadedNode.getNode().getId());
+        } finally {
+            Loader.removePack(pack);
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.loading;
+
+import io.boschman.fxstager.metrics.StagerMetrics;
+import io.boschman.fxstager.testing.FxToolkit;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javafx.scene.layout.Pane;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class LoaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        FxToolkit.start();
+    }
+
+    @Test
+    public void testConcurrentLoadsBuildSeparateGraphs() throws Exception {
+        final File file = writeDocument();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final CompletableFuture<LoadedNode<Pane, Object>> first = Loader.loadAsync(file.toURI().toURL(), executor);
+            final CompletableFuture<LoadedNode<Pane, Object>> second = Loader.loadAsync(file.toURI().toURL(), executor);
+            final LoadedNode<Pane, Object> firstNode = first.get(5, TimeUnit.SECONDS);
+            final LoadedNode<Pane, Object> secondNode = second.get(5, TimeUnit.SECONDS);
+            assertNotSame(firstNode, secondNode);
+            assertNotSame(firstNode.getNode(), secondNode.getNode());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectedLoadFailsFuture() throws Exception {
+        final File file = writeDocument();
+        final CompletableFuture<LoadedNode<Pane, Object>> load = Loader.loadAsync(file.toURI().toURL(), (Runnable command) -> {
+            throw new RejectedExecutionException();
+        });
+        try {
+            load.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void testRecordingMetricsDoesntChangeHowControllersFail() throws Exception {
+        final File file = temporaryFolder.newFile("failing.fxml");
+        Files.write(file.toPath(), ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<?import javafx.scene.layout.Pane?>\n"
+                + "<Pane xmlns:fx=\"http://javafx.com/fxml/1\" fx:controller=\"" + FailingController.class.getName() + "\"/>\n")
+                .getBytes(StandardCharsets.UTF_8));
+        final List<Class<?>> withoutMetrics = loadFailure(file);
+        Loader.setMetrics(new StagerMetrics() {
+        });
+        try {
+            assertEquals(withoutMetrics, loadFailure(file));
+        } finally {
+            Loader.setMetrics(null);
+        }
+    }
+
+    private static List<Class<?>> loadFailure(File file) throws IOException {
+        try {
+            Loader.load(file.toURI().toURL());
+            throw new AssertionError("The controller should have failed.");
+        } catch (ScreenLoaderException ex) {
+            final List<Class<?>> causes = new ArrayList<>();
+            for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+                causes.add(cause.getClass());
+            }
+            return causes;
+        }
+    }
+
+    private File writeDocument() throws IOException {
+        final File file = temporaryFolder.newFile("document.fxml");
+        Files.write(file.toPath(), ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<?import javafx.scene.layout.Pane?>\n"
+                + "<Pane xmlns:fx=\"http://javafx.com/fxml/1\"/>\n").getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @SuppressWarnings("PublicInnerClass")
+    public static class FailingController {
+
+        public FailingController() {
+            throw new IllegalStateException();
+        }
+
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.loading;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class TemplateCacheTest {
+
+    private static final byte[] CONTENTS = "<Pane/>".getBytes(StandardCharsets.UTF_8);
+
+    private final AtomicInteger reads = new AtomicInteger();
+    private final CountDownLatch reading = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean failing;
+    private volatile byte[] contents = CONTENTS;
+    private ExecutorService executor;
+    private URL url;
+
+    @Before
+    public void setUp() throws IOException {
+        executor = Executors.newFixedThreadPool(2);
+        url = new URL(null, "blocking:document.fxml", new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(URL u) {
+                return new URLConnection(u) {
+                    @Override
+                    public void connect() {
+                        //Nothing to connect to.
+                    }
+
+                    @Override
+                    public InputStream getInputStream() throws IOException {
+                        final byte[] read = contents;
+                        reads.incrementAndGet();
+                        reading.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException ex) {
+                            throw new IOException(ex);
+                        }
+                        if (failing) {
+                            throw new IOException("Read failed.");
+                        }
+                        return new ByteArrayInputStream(read);
+                    }
+                };
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneRead() throws Exception {
+        final TemplateCache templateCache = new TemplateCache(0);
+        final Future<byte[]> first = executor.submit(() -> templateCache.get(url));
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        final Future<byte[]> second = executor.submit(() -> templateCache.get(url));
+        Thread.sleep(100);
+        release.countDown();
+        assertArrayEquals(CONTENTS, first.get(5, TimeUnit.SECONDS));
+        assertArrayEquals(CONTENTS, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void testFailedReadFailsWaitingRequests() throws Exception {
+        failing = true;
+        final TemplateCache templateCache = new TemplateCache(4);
+        final Future<byte[]> first = executor.submit(() -> templateCache.get(url));
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        final Future<byte[]> second = executor.submit(() -> templateCache.get(url));
+        Thread.sleep(100);
+        release.countDown();
+        assertFailsWithIOException(first);
+        assertFailsWithIOException(second);
+        assertEquals(0, templateCache.size());
+    }
+
+    @Test
+    public void testInvalidatedReadIsNeitherJoinedNorCached() throws Exception {
+        final byte[] changed = "<VBox/>".getBytes(StandardCharsets.UTF_8);
+        final TemplateCache templateCache = new TemplateCache(4);
+        final Future<byte[]> stale = executor.submit(() -> templateCache.get(url));
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        contents = changed;
+        templateCache.invalidate(url);
+        final Future<byte[]> fresh = executor.submit(() -> templateCache.get(url));
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (reads.get() < 2) {
+            assertTrue("The second request joined the invalidated read.", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+        release.countDown();
+        assertArrayEquals(CONTENTS, stale.get(5, TimeUnit.SECONDS));
+        assertArrayEquals(changed, fresh.get(5, TimeUnit.SECONDS));
+        assertArrayEquals(changed, templateCache.get(url));
+        assertEquals(2, reads.get());
+    }
+
+    private static void assertFailsWithIOException(Future<byte[]> read) throws Exception {
+        try {
+            read.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IOException);
+        }
+    }
+
+}
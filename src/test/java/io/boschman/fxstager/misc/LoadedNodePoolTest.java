@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.misc;
+
+import io.boschman.fxstager.concurrent.RejectionPolicy;
+import io.boschman.fxstager.concurrent.TaskLauncher;
+import io.boschman.fxstager.loading.LoadedNode;
+import io.boschman.fxstager.testing.FxToolkit;
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.scene.layout.Pane;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class LoadedNodePoolTest {
+
+    private static final AtomicInteger RECYCLED = new AtomicInteger();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private URL url;
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        FxToolkit.start();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        RECYCLED.set(0);
+        final File file = temporaryFolder.newFile("pooled.fxml");
+        Files.write(file.toPath(), ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<?import javafx.scene.layout.Pane?>\n"
+                + "<Pane xmlns:fx=\"http://javafx.com/fxml/1\" fx:controller=\"" + RecyclableController.class.getName() + "\"/>\n")
+                .getBytes(StandardCharsets.UTF_8));
+        url = file.toURI().toURL();
+    }
+
+    @Test
+    public void testReleasedInstanceIsReused() throws Exception {
+        final LoadedNodePool pool = new LoadedNodePool(2);
+        final LoadedNode<Pane, RecyclableController> loadedNode = pool.acquire(url);
+        pool.release(url, loadedNode);
+        assertEquals(1, RECYCLED.get());
+        assertSame(loadedNode, pool.acquire(url));
+    }
+
+    @Test
+    public void testDoubleReleaseIsIgnored() throws Exception {
+        final LoadedNodePool pool = new LoadedNodePool(2);
+        final LoadedNode<Pane, RecyclableController> loadedNode = pool.acquire(url);
+        pool.release(url, loadedNode);
+        pool.release(url, loadedNode);
+        assertEquals(1, pool.getIdleCount(url));
+        assertEquals(1, RECYCLED.get());
+        assertSame(loadedNode, pool.acquire(url));
+        assertNotSame(loadedNode, pool.acquire(url));
+    }
+
+    @Test
+    public void testPrewarmCountsOnlyInstancesThatWereLoaded() throws Exception {
+        final LoadedNodePool pool = new LoadedNodePool(4);
+        final TaskLauncher taskLauncher = TaskLauncher.bounded(1, 1, RejectionPolicy.DISCARD);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        taskLauncher.executeRunnable(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final CompletableFuture<Integer> prewarmed = pool.prewarm(url, 3, taskLauncher);
+        release.countDown();
+        assertEquals(1, (int) prewarmed.get(5, TimeUnit.SECONDS));
+        assertEquals(1, pool.getIdleCount(url));
+    }
+
+    @SuppressWarnings("PublicInnerClass")
+    public static class RecyclableController implements Recyclable {
+
+        @Override
+        public void recycle() {
+            RECYCLED.incrementAndGet();
+        }
+
+    }
+
+}
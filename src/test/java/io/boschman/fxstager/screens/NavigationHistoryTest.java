@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.screens;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class NavigationHistoryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSavedHistoryIsLoaded() throws Exception {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("history.txt");
+        final NavigationHistory history = new NavigationHistory();
+        history.record("a", "b");
+        history.record("a", "c");
+        history.record("a", "c");
+        history.save(file);
+        assertEquals(Arrays.asList("c", "b"), NavigationHistory.load(file).getLikelyNext("a", 2));
+    }
+
+    @Test
+    public void testInvalidLinesAreSkipped() throws Exception {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("history.txt");
+        Files.write(file, Arrays.asList("a\tb\t1", "a\tc\tmany", "a\td\t2"), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("d", "b"), NavigationHistory.load(file).getLikelyNext("a", 3));
+    }
+
+}
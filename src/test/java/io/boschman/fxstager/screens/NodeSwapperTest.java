@@ -0,0 +1,434 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.screens;
+
+import io.boschman.fxstager.concurrent.RejectionPolicy;
+import io.boschman.fxstager.concurrent.TaskLauncher;
+import io.boschman.fxstager.testing.FxToolkit;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javafx.fxml.FXML;
+import javafx.scene.layout.Pane;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class NodeSwapperTest {
+
+    private static final List<String> EVENTS = Collections.synchronizedList(new ArrayList<>());
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private NodeSwapper nodeSwapper;
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        FxToolkit.start();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        EVENTS.clear();
+        nodeSwapper = FxToolkit.callOnFxThread(NodeSwapper::new);
+        for (String id : Arrays.asList("a", "b", "c", "d")) {
+            nodeSwapper.registerScreen(id, writeScreen(id));
+        }
+    }
+
+    @Test
+    public void testScreensAreLoadedOnFirstRequest() throws Exception {
+        nodeSwapper.setTransition(ScreenTransition.instant());
+        assertFalse(nodeSwapper.isLoaded("a"));
+        FxToolkit.runOnFxThread(() -> nodeSwapper.setScreen("a"));
+        assertTrue(nodeSwapper.isLoaded("a"));
+        assertFalse(nodeSwapper.isLoaded("b"));
+        assertEquals(Arrays.asList("load:a", "display:a"), EVENTS);
+    }
+
+    @Test
+    public void testRequestingDisplayedScreenDoesNothing() throws Exception {
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setTransition(ScreenTransition.instant());
+            nodeSwapper.setScreen("a");
+        });
+        EVENTS.clear();
+        assertTrue(FxToolkit.callOnFxThread(() -> nodeSwapper.setScreen("a")));
+        assertEquals(Collections.emptyList(), EVENTS);
+    }
+
+    @Test
+    public void testFirstScreenFadesInSlowly() throws Exception {
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setTransition(ScreenTransition.fade());
+            nodeSwapper.setScreen("a");
+        });
+        Thread.sleep(1200);
+        assertTrue(FxToolkit.callOnFxThread(nodeSwapper::getOpacity) < 1.0);
+        FxToolkit.waitUntil(() -> nodeSwapper.getOpacity() == 1.0, 5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testUnknownScreenIsRejected() throws Exception {
+        assertFalse(FxToolkit.callOnFxThread(() -> nodeSwapper.setScreen("unknown")));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedScreenIsEvicted() throws Exception {
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setTransition(ScreenTransition.instant());
+            nodeSwapper.setMaximumScreens(2);
+            nodeSwapper.setScreen("a");
+            nodeSwapper.setScreen("b");
+            nodeSwapper.setScreen("a");
+            nodeSwapper.setScreen("c");
+        });
+        assertTrue(nodeSwapper.isLoaded("a"));
+        assertFalse(nodeSwapper.isLoaded("b"));
+        assertTrue(nodeSwapper.isLoaded("c"));
+        assertTrue(EVENTS.contains("unload:b"));
+    }
+
+    @Test
+    public void testPinnedAndDisplayedScreensAreNotEvicted() throws Exception {
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setTransition(ScreenTransition.instant());
+            nodeSwapper.setMaximumScreens(1);
+            nodeSwapper.pinScreen("a");
+            nodeSwapper.setScreen("a");
+            nodeSwapper.setScreen("b");
+        });
+        assertTrue(nodeSwapper.isLoaded("a"));
+        assertTrue(nodeSwapper.isLoaded("b"));
+        assertFalse(FxToolkit.callOnFxThread(() -> nodeSwapper.evictScreen("b")));
+        FxToolkit.runOnFxThread(() -> nodeSwapper.setScreen("c"));
+        assertTrue(FxToolkit.callOnFxThread(() -> nodeSwapper.evictScreen("b")));
+        assertFalse(FxToolkit.callOnFxThread(() -> nodeSwapper.evictScreen("c")));
+        assertTrue(nodeSwapper.isLoaded("a"));
+    }
+
+    @Test
+    public void testScreensInTransitionAreNotEvictedWhileSnapshotted() throws Exception {
+        final ScreenTransition stalled = new ScreenTransition() {
+            @Override
+            public void hide(Stager stager, Runnable onHidden) {
+                //Never finishes.
+            }
+
+            @Override
+            public void show(Stager stager, Runnable onShown) {
+                //Never finishes.
+            }
+
+            @Override
+            public void stop() {
+                //Nothing is playing.
+            }
+        };
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setTransition(ScreenTransition.instant());
+            nodeSwapper.setScreen("a");
+            nodeSwapper.setTransition(ScreenTransition.snapshotted(stalled));
+            nodeSwapper.setScreen("b");
+        });
+        assertFalse(FxToolkit.callOnFxThread(() -> nodeSwapper.getChildren().contains(nodeSwapper.getNode("a"))));
+        assertFalse(FxToolkit.callOnFxThread(() -> nodeSwapper.evictScreen("a")));
+        assertFalse(FxToolkit.callOnFxThread(() -> nodeSwapper.evictScreen("b")));
+        assertTrue(nodeSwapper.isLoaded("a"));
+    }
+
+    @Test
+    public void testEvictionBudgetUsesWeigher() throws Exception {
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setTransition(ScreenTransition.instant());
+            nodeSwapper.setEvictionBudget(3, (screen) -> "c".equals(screen.getNode().getId()) ? 2 : 1);
+            nodeSwapper.setScreen("a");
+            nodeSwapper.setScreen("b");
+            nodeSwapper.setScreen("c");
+        });
+        assertFalse(nodeSwapper.isLoaded("a"));
+        assertTrue(nodeSwapper.isLoaded("b"));
+        assertTrue(nodeSwapper.isLoaded("c"));
+    }
+
+    @Test
+    public void testPrefetchingStopsAtEvictionBudget() throws Exception {
+        final ExecutorService threadpool = Executors.newSingleThreadExecutor();
+        nodeSwapper.getNavigationHistory().record("a", "b");
+        nodeSwapper.getNavigationHistory().record("a", "c");
+        nodeSwapper.getNavigationHistory().record("a", "d");
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setTransition(ScreenTransition.instant());
+            nodeSwapper.setMaximumScreens(2);
+            nodeSwapper.setPrefetching(new TaskLauncher(threadpool), 3);
+            nodeSwapper.setScreen("a");
+        });
+        threadpool.shutdown();
+        assertTrue(threadpool.awaitTermination(5, TimeUnit.SECONDS));
+        FxToolkit.waitForIdle(5, TimeUnit.SECONDS);
+        final long loaded = Stream.of("a", "b", "c", "d").filter(nodeSwapper::isLoaded).count();
+        assertEquals(2, loaded);
+        assertTrue(nodeSwapper.isLoaded("a"));
+        assertTrue(EVENTS.stream().noneMatch((String event) -> event.startsWith("unload:")));
+    }
+
+    @Test
+    public void testRejectedPrefetchIsSkipped() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final TaskLauncher taskLauncher = TaskLauncher.bounded(1, 1, RejectionPolicy.ABORT);
+        final CountDownLatch started = new CountDownLatch(1);
+        taskLauncher.executeRunnable(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        taskLauncher.executeRunnable(() -> {
+        });
+        nodeSwapper.getNavigationHistory().record("a", "b");
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setTransition(ScreenTransition.instant());
+            nodeSwapper.setPrefetching(taskLauncher, 1);
+            nodeSwapper.setScreen("a");
+        });
+        assertFalse(nodeSwapper.isLoaded("b"));
+        release.countDown();
+        //Only once the queue is empty again is there room for a prefetch.
+        FxToolkit.waitUntil(() -> taskLauncher.getMetrics().getCompletedCount() == 2, 5, TimeUnit.SECONDS);
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setScreen("c");
+            nodeSwapper.setScreen("a");
+        });
+        FxToolkit.waitUntil(() -> nodeSwapper.isLoaded("b"), 5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testOnlyLastRequestedScreenIsDisplayed() throws Exception {
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setTransition(ScreenTransition.fade(javafx.util.Duration.millis(100), javafx.util.Duration.millis(100)));
+            nodeSwapper.setScreen("a");
+        });
+        FxToolkit.waitUntil(() -> nodeSwapper.getOpacity() == 1.0, 5, TimeUnit.SECONDS);
+        EVENTS.clear();
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setScreen("b");
+            nodeSwapper.setScreen("c");
+        });
+        FxToolkit.waitForPulses(2, 5, TimeUnit.SECONDS);
+        FxToolkit.runOnFxThread(() -> nodeSwapper.setScreen("d"));
+        FxToolkit.waitUntil(() -> isShowing("d") && nodeSwapper.getOpacity() == 1.0, 5, TimeUnit.SECONDS);
+        assertEquals(1, (int) FxToolkit.callOnFxThread(() -> nodeSwapper.getChildren().size()));
+        assertEquals(Arrays.asList("display:d"), displayEvents());
+    }
+
+    @Test
+    public void testRedirectWhileShowingHidesAgain() throws Exception {
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setTransition(ScreenTransition.fade(javafx.util.Duration.millis(200), javafx.util.Duration.millis(200)));
+            nodeSwapper.setScreen("a");
+        });
+        FxToolkit.waitUntil(() -> nodeSwapper.getOpacity() > 0.0 && nodeSwapper.getOpacity() < 1.0, 5, TimeUnit.SECONDS);
+        FxToolkit.runOnFxThread(() -> nodeSwapper.setScreen("b"));
+        FxToolkit.waitUntil(() -> isShowing("b") && nodeSwapper.getOpacity() == 1.0, 5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("display:a", "display:b"), displayEvents());
+        assertTrue(EVENTS.contains("hide:a"));
+    }
+
+    @Test
+    public void testRequestingScreenBeingHiddenReversesHide() throws Exception {
+        final ManualScreenTransition manual = new ManualScreenTransition();
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setTransition(ScreenTransition.instant());
+            nodeSwapper.setScreen("a");
+            nodeSwapper.setTransition(manual);
+        });
+        EVENTS.clear();
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setScreen("b");
+            nodeSwapper.setScreen("a");
+        });
+        assertEquals(Arrays.asList("load:b", "hide:a", "display:a"), EVENTS);
+        assertTrue(manual.isReversing());
+        FxToolkit.runOnFxThread(manual::finish);
+        assertTrue(FxToolkit.callOnFxThread(() -> isShowing("a")));
+        assertEquals(Arrays.asList("load:b", "hide:a", "display:a"), EVENTS);
+        assertEquals(Collections.emptyList(), nodeSwapper.getNavigationHistory().getLikelyNext("a", 4));
+    }
+
+    @Test
+    public void testHiddenScreenIsSuspendedAndResumed() throws Exception {
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setTransition(ScreenTransition.instant());
+            nodeSwapper.setScreen("a");
+            nodeSwapper.setScreen("b");
+            nodeSwapper.setScreen("a");
+        });
+        assertEquals(Arrays.asList("load:a", "display:a", "load:b", "hide:a", "suspend:a", "display:b",
+                "hide:b", "suspend:b", "resume:a", "display:a"), EVENTS);
+    }
+
+    @Test
+    public void testScreenIsSuspendedOnceHidden() throws Exception {
+        final ManualScreenTransition manual = new ManualScreenTransition();
+        FxToolkit.runOnFxThread(() -> {
+            nodeSwapper.setTransition(ScreenTransition.instant());
+            nodeSwapper.setScreen("a");
+            nodeSwapper.setScreen("b");
+            nodeSwapper.setTransition(manual);
+        });
+        EVENTS.clear();
+        FxToolkit.runOnFxThread(() -> nodeSwapper.setScreen("a"));
+        assertEquals(Arrays.asList("hide:b"), EVENTS);
+        FxToolkit.runOnFxThread(manual::finish);
+        assertEquals(Arrays.asList("hide:b", "suspend:b", "resume:a", "display:a"), EVENTS);
+    }
+
+    private boolean isShowing(String id) {
+        return !nodeSwapper.getChildren().isEmpty() && id.equals(nodeSwapper.getChildren().get(0).getId());
+    }
+
+    private static List<String> displayEvents() {
+        synchronized (EVENTS) {
+            return EVENTS.stream().filter((String event) -> event.startsWith("display:")).collect(Collectors.toList());
+        }
+    }
+
+    private String writeScreen(String id) throws IOException {
+        final File file = temporaryFolder.newFile(id + ".fxml");
+        Files.write(file.toPath(), ("<?import javafx.scene.layout.*?>"
+                + "<Pane xmlns:fx=\"http://javafx.com/fxml/1\" fx:id=\"root\" id=\"" + id + "\""
+                + " fx:controller=\"" + RecordingController.class.getName() + "\"/>").getBytes(StandardCharsets.UTF_8));
+        return file.getPath();
+    }
+
+    /**
+     * Records every callback, together with the id of its screen.
+     */
+    @SuppressWarnings("PublicInnerClass")
+    public static class RecordingController extends AbstractController {
+
+        @FXML
+        Pane root;
+
+        @Override
+        public void onLoad() {
+            EVENTS.add("load:" + root.getId());
+        }
+
+        @Override
+        public void onDisplay() {
+            EVENTS.add("display:" + root.getId());
+        }
+
+        @Override
+        public void onHide() {
+            EVENTS.add("hide:" + root.getId());
+        }
+
+        @Override
+        public void onSuspend() {
+            super.onSuspend();
+            EVENTS.add("suspend:" + root.getId());
+        }
+
+        @Override
+        public void onResume() {
+            super.onResume();
+            EVENTS.add("resume:" + root.getId());
+        }
+
+        @Override
+        public void onUnload() {
+            super.onUnload();
+            EVENTS.add("unload:" + root.getId());
+        }
+
+    }
+
+    /**
+     * A transition that only finishes when told to.
+     */
+    private static final class ManualScreenTransition implements ScreenTransition {
+
+        private Runnable onFinished;
+        private boolean reversing;
+
+        @Override
+        public void hide(Stager stager, Runnable onHidden) {
+            this.onFinished = onHidden;
+            this.reversing = false;
+        }
+
+        @Override
+        public void show(Stager stager, Runnable onShown) {
+            this.onFinished = onShown;
+            this.reversing = false;
+        }
+
+        @Override
+        public void reverseHide(Stager stager, Runnable onShown) {
+            this.onFinished = onShown;
+            this.reversing = true;
+        }
+
+        @Override
+        public void stop() {
+            this.onFinished = null;
+            this.reversing = false;
+        }
+
+        boolean isReversing() {
+            return reversing;
+        }
+
+        void finish() {
+            final Runnable finished = onFinished;
+            onFinished = null;
+            reversing = false;
+            if (finished != null) {
+                finished.run();
+            }
+        }
+
+    }
+
+}
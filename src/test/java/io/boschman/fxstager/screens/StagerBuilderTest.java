@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.screens;
+
+import io.boschman.fxstager.concurrent.RejectionPolicy;
+import io.boschman.fxstager.concurrent.TaskLauncher;
+import io.boschman.fxstager.testing.FxToolkit;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class StagerBuilderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        FxToolkit.start();
+    }
+
+    @Test
+    public void testCreateWithoutMetrics() throws Exception {
+        final StagerBuilder stagerBuilder = new StagerBuilder()
+                .addScreen("a", writeScreen("a"))
+                .setMetrics(null)
+                .setInitial("a");
+        assertNotNull(FxToolkit.callOnFxThread(stagerBuilder::create));
+    }
+
+    @Test
+    public void testCreateAsyncWithoutMetrics() throws Exception {
+        final StagerBuilder stagerBuilder = new StagerBuilder()
+                .addScreen("a", writeScreen("a"))
+                .setMetrics(null);
+        assertNotNull(stagerBuilder.createAsync(new TaskLauncher()).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCreateAsyncWithoutScreensReportsCompletion() throws Exception {
+        final List<Double> progress = Collections.synchronizedList(new ArrayList<>());
+        assertNotNull(new StagerBuilder().createAsync(new TaskLauncher(), progress::add).get(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1.0), progress);
+    }
+
+    @Test
+    public void testRejectedLoadFailsFuture() throws Exception {
+        final TaskLauncher taskLauncher = TaskLauncher.bounded(1, 1, RejectionPolicy.ABORT);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        taskLauncher.executeRunnable(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final StagerBuilder stagerBuilder = new StagerBuilder()
+                .addScreen("a", writeScreen("a"))
+                .addScreen("b", writeScreen("b"))
+                .setTransition(ScreenTransition::instant);
+        final CompletableFuture<Stager> stager = stagerBuilder.createAsync(taskLauncher);
+        release.countDown();
+        try {
+            stager.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void testLazyModeOnlyLoadsEagerScreens() throws Exception {
+        final StagerBuilder stagerBuilder = new StagerBuilder()
+                .addScreen("a", writeScreen("a"))
+                .addScreen("b", writeScreen("b"))
+                .setLazy(true)
+                .loadEagerly("a");
+        final NodeSwapper nodeSwapper = (NodeSwapper) FxToolkit.callOnFxThread(stagerBuilder::create);
+        assertTrue(nodeSwapper.isLoaded("a"));
+        assertFalse(nodeSwapper.isLoaded("b"));
+    }
+
+    private String writeScreen(String id) throws IOException {
+        final File file = temporaryFolder.newFile(id + ".fxml");
+        Files.write(file.toPath(), ("<?import javafx.scene.layout.*?>"
+                + "<Pane xmlns:fx=\"http://javafx.com/fxml/1\" id=\"" + id + "\""
+                + " fx:controller=\"" + PlainController.class.getName() + "\"/>").getBytes(StandardCharsets.UTF_8));
+        return file.getPath();
+    }
+
+    /**
+     * A controller without any behaviour.
+     */
+    @SuppressWarnings("PublicInnerClass")
+    public static class PlainController extends AbstractController {
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.testing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.util.Duration;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Arjan Boschman
+ */
+public class FxToolkitTest {
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        FxToolkit.start();
+    }
+
+    @Test
+    public void testCallOnFxThreadRunsOnApplicationThread() throws Exception {
+        assertTrue(FxToolkit.callOnFxThread(Platform::isFxApplicationThread));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCallOnFxThreadRethrows() throws Exception {
+        FxToolkit.callOnFxThread(() -> {
+            throw new IllegalStateException();
+        });
+    }
+
+    @Test
+    public void testWaitUntilReturnsOnceConditionHolds() throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        FxToolkit.waitUntil(() -> System.nanoTime() >= deadline, 5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() >= deadline);
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testWaitUntilTimesOut() throws Exception {
+        FxToolkit.waitUntil(() -> false, 100, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testWaitForAnimationsWaitsUntilFinished() throws Exception {
+        final SimpleDoubleProperty value = new SimpleDoubleProperty(0);
+        final Timeline timeline = new Timeline(new KeyFrame(Duration.millis(200), new KeyValue(value, 1.0)));
+        FxToolkit.runOnFxThread(timeline::play);
+        FxToolkit.waitForAnimations(5, TimeUnit.SECONDS, timeline);
+        assertEquals(1.0, FxToolkit.callOnFxThread(value::get), 0.0);
+    }
+
+    @Test
+    public void testWaitForIdleProcessesPendingEvents() throws Exception {
+        final boolean[] ran = {false};
+        Platform.runLater(() -> ran[0] = true);
+        FxToolkit.waitForIdle(5, TimeUnit.SECONDS);
+        assertTrue(FxToolkit.callOnFxThread(() -> ran[0]));
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2015 Arjan Boschman
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package io.boschman.fxstager.testing;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import javafx.animation.Animation;
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.stage.Stage;
+
+/**
+ * A static utility class for tests and benchmarks. Starts the JavaFX toolkit
+ * once per JVM, runs code on the JavaFX Application thread and waits for the
+ * scene graph to settle.
+ * <p>
+ * If the Monocle glass platform is on the classpath, the toolkit is started
+ * headless with the software renderer, so that no display is needed. Set the
+ * system property {@code fxstager.headless} to false, or set
+ * {@code glass.platform} explicitly, to use the platform's own toolkit
+ * instead.
+ *
+ * @author Arjan Boschman
+ */
+public final class FxToolkit {
+
+    private static final String MONOCLE_PLATFORM_FACTORY = "com.sun.glass.ui.monocle.MonoclePlatformFactory";
+    private static final long START_TIMEOUT_SECONDS = 30;
+    private static final CountDownLatch STARTED = new CountDownLatch(1);
+    private static boolean launched = false;
+    private static volatile Throwable launchFailure;
+
+    /**
+     * Starts the toolkit if it hasn't been started yet, and waits until it is
+     * running.
+     *
+     * @throws InterruptedException  If interrupted while waiting.
+     * @throws IllegalStateException If the toolkit failed to launch, or
+     *                               didn't start within 30 seconds.
+     */
+    public static void start() throws InterruptedException {
+        synchronized (FxToolkit.class) {
+            if (!launched) {
+                launched = true;
+                if (isHeadless()) {
+                    setPropertyIfAbsent("glass.platform", "Monocle");
+                    setPropertyIfAbsent("monocle.platform", "Headless");
+                    setPropertyIfAbsent("prism.order", "sw");
+                    setPropertyIfAbsent("prism.text", "t2k");
+                    setPropertyIfAbsent("java.awt.headless", "true");
+                }
+                final Thread launcher = new Thread(() -> {
+                    try {
+                        Application.launch(ToolkitApplication.class);
+                    } catch (RuntimeException | Error ex) {
+                        launchFailure = ex;
+                        STARTED.countDown();
+                    }
+                }, "FxToolkitLauncher");
+                launcher.setDaemon(true);
+                launcher.start();
+            }
+        }
+        if (!STARTED.await(START_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("The JavaFX toolkit did not start within " + START_TIMEOUT_SECONDS + " seconds.");
+        }
+        final Throwable failure = launchFailure;
+        if (failure != null) {
+            throw new IllegalStateException("The JavaFX toolkit failed to launch.", failure);
+        }
+    }
+
+    /**
+     * Runs the callable on the JavaFX Application thread and waits for its
+     * result.
+     *
+     * @param <T>      The type of the result.
+     * @param callable The code to run.
+     * @return The result of the callable.
+     * @throws Exception Whatever the callable throws.
+     */
+    public static <T> T callOnFxThread(Callable<T> callable) throws Exception {
+        if (Platform.isFxApplicationThread()) {
+            return callable.call();
+        }
+        final FutureTask<T> futureTask = new FutureTask<>(callable);
+        Platform.runLater(futureTask);
+        try {
+            return futureTask.get();
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            throw cause instanceof Exception ? (Exception) cause : ex;
+        }
+    }
+
+    /**
+     * Runs the runnable on the JavaFX Application thread and waits for it to
+     * finish.
+     *
+     * @param runnable The code to run.
+     * @throws Exception Whatever the runnable throws.
+     */
+    public static void runOnFxThread(Runnable runnable) throws Exception {
+        callOnFxThread(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * Waits until the given number of pulses has passed. Animations and
+     * layout are processed once per pulse. May not be called from the JavaFX
+     * Application thread.
+     *
+     * @param pulses  The number of pulses to wait for.
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of the timeout.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws TimeoutException     If the pulses didn't pass in time.
+     */
+    public static void waitForPulses(int pulses, long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        final CountDownLatch remaining = new CountDownLatch(pulses);
+        final AnimationTimer timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                remaining.countDown();
+                if (remaining.getCount() == 0) {
+                    stop();
+                }
+            }
+        };
+        Platform.runLater(timer::start);
+        if (!remaining.await(timeout, unit)) {
+            Platform.runLater(timer::stop);
+            throw new TimeoutException("Waited for " + pulses + " pulses, but only "
+                    + (pulses - remaining.getCount()) + " passed.");
+        }
+    }
+
+    /**
+     * Waits until the condition holds. The condition is evaluated on the
+     * JavaFX Application thread, once per pulse, so it can safely inspect the
+     * scene graph; for instance to wait until a transition has finished. May
+     * not be called from the JavaFX Application thread.
+     *
+     * @param condition The condition to wait for.
+     * @param timeout   The maximum time to wait.
+     * @param unit      The unit of the timeout.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws TimeoutException     If the condition didn't hold in time.
+     */
+    public static void waitUntil(BooleanSupplier condition, long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        final CountDownLatch satisfied = new CountDownLatch(1);
+        final AnimationTimer timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (condition.getAsBoolean()) {
+                    satisfied.countDown();
+                    stop();
+                }
+            }
+        };
+        Platform.runLater(timer::start);
+        if (!satisfied.await(timeout, unit)) {
+            Platform.runLater(timer::stop);
+            throw new TimeoutException("Condition did not hold within " + timeout + " " + unit + ".");
+        }
+    }
+
+    /**
+     * Waits until the animations have settled: none of them is running any
+     * more, and one more pulse has passed so that their final values have
+     * been rendered. May not be called from the JavaFX Application thread.
+     *
+     * @param timeout    The maximum time to wait.
+     * @param unit       The unit of the timeout.
+     * @param animations The animations to wait for.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws TimeoutException     If an animation was still running when the
+     *                              time ran out.
+     */
+    public static void waitForAnimations(long timeout, TimeUnit unit, Animation... animations) throws InterruptedException, TimeoutException {
+        waitUntil(() -> {
+            for (Animation animation : animations) {
+                if (animation.getStatus() == Animation.Status.RUNNING) {
+                    return false;
+                }
+            }
+            return true;
+        }, timeout, unit);
+        waitForPulses(1, timeout, unit);
+    }
+
+    /**
+     * Waits until every event that was posted to the JavaFX Application thread
+     * before this call has been processed, and one more pulse has passed. May
+     * not be called from the JavaFX Application thread.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of the timeout.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws TimeoutException     If the toolkit didn't become idle in time.
+     */
+    public static void waitForIdle(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        final CountDownLatch drained = new CountDownLatch(1);
+        Platform.runLater(drained::countDown);
+        if (!drained.await(timeout, unit)) {
+            throw new TimeoutException("The JavaFX Application thread did not become idle within " + timeout + " " + unit + ".");
+        }
+        waitForPulses(1, timeout, unit);
+    }
+
+    private static boolean isHeadless() {
+        if (!Boolean.parseBoolean(System.getProperty("fxstager.headless", "true"))) {
+            return false;
+        }
+        try {
+            Class.forName(MONOCLE_PLATFORM_FACTORY, false, FxToolkit.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    private static void setPropertyIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * Only exists to bring up the toolkit. Never shows its stage.
+     */
+    @SuppressWarnings("PublicInnerClass")
+    public static class ToolkitApplication extends Application {
+
+        @Override
+        public void start(Stage primaryStage) {
+            Platform.setImplicitExit(false);
+            STARTED.countDown();
+        }
+
+    }
+
+    private FxToolkit() {
+        //Private constructor to make sure no instance is created.
+    }
+
+}